@@ -0,0 +1,21 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+
+final class Codes {
+
+    private Codes() {
+        // Empty
+    }
+
+    static String[] encode(final Coordinates coordinates, final int codeLength) {
+        final double[] latitudes = coordinates.latitudes();
+        final double[] longitudes = coordinates.longitudes();
+        final String[] codes = new String[Coordinates.SIZE];
+        for (int i = 0; i < Coordinates.SIZE; i++) {
+            codes[i] = OpenLocationCode.encode(latitudes[i], longitudes[i], codeLength);
+        }
+        return codes;
+    }
+
+}
@@ -0,0 +1,63 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import java.util.Random;
+
+// Realistic coordinate distributions, generated from a fixed seed so that runs are comparable.
+public enum Coordinates {
+
+    UNIFORM,
+    // Gaussian clusters around a handful of city centers.
+    URBAN,
+    // Latitudes within 5 degrees of either pole, where latitude 90 gets clipped.
+    POLAR,
+    // Longitudes within half a degree of +/-180, including values that need normalizing.
+    ANTIMERIDIAN;
+
+    public static final int SIZE = 4 * 1024;
+
+    private static final long SEED = 20161016L;
+    private static final double[][] CITIES = {
+            { 48.8566, 2.3522 }, { 40.7128, -74.0060 }, { 35.6895, 139.6917 }, { -33.8688, 151.2093 },
+            { -23.5505, -46.6333 }, { 19.0760, 72.8777 }, { 30.0444, 31.2357 }, { 55.7558, 37.6173 }
+    };
+
+    public double[] latitudes() {
+        return generate(true);
+    }
+
+    public double[] longitudes() {
+        return generate(false);
+    }
+
+    private double[] generate(final boolean latitudes) {
+        // Same seed for both columns of a distribution, so that they describe the same points.
+        final Random random = new Random(SEED + ordinal());
+        final double[] values = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            final double latitude;
+            final double longitude;
+            switch (this) {
+                case URBAN:
+                    final double[] city = CITIES[random.nextInt(CITIES.length)];
+                    latitude = city[0] + random.nextGaussian() * 0.05;
+                    longitude = city[1] + random.nextGaussian() * 0.05;
+                    break ;
+                case POLAR:
+                    latitude = (random.nextBoolean() ? 1 : -1) * (85 + random.nextDouble() * 5);
+                    longitude = random.nextDouble() * 360 - 180;
+                    break ;
+                case ANTIMERIDIAN:
+                    latitude = random.nextDouble() * 180 - 90;
+                    longitude = 180 + random.nextDouble() - 0.5;
+                    break ;
+                default:
+                    latitude = random.nextDouble() * 180 - 90;
+                    longitude = random.nextDouble() * 360 - 180;
+                    break ;
+            }
+            values[i] = latitudes ? latitude : longitude;
+        }
+        return values;
+    }
+
+}
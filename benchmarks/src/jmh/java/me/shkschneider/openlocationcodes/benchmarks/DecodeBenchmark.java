@@ -0,0 +1,47 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+
+@State(Scope.Thread)
+public class DecodeBenchmark {
+
+    @Param({ "4", "8", "10", "11", "15" })
+    public int codeLength;
+
+    @Param({ "UNIFORM", "URBAN", "POLAR", "ANTIMERIDIAN" })
+    public Coordinates coordinates;
+
+    private String[] mCodes;
+    private final OpenLocationCode.MutableCodeArea mCodeArea = new OpenLocationCode.MutableCodeArea();
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        GoldenVectors.verify();
+        mCodes = Codes.encode(coordinates, codeLength);
+    }
+
+    private String next() {
+        mIndex = (mIndex + 1) & (Coordinates.SIZE - 1);
+        return mCodes[mIndex];
+    }
+
+    @Benchmark
+    public OpenLocationCode.CodeArea decode() {
+        return OpenLocationCode.decode(next());
+    }
+
+    @Benchmark
+    public OpenLocationCode.CodeArea decodeInto() {
+        final String code = next();
+        OpenLocationCode.decodeInto(code, 0, code.length(), mCodeArea);
+        return mCodeArea;
+    }
+
+}
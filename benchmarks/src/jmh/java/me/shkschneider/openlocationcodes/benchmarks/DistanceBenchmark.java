@@ -0,0 +1,39 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+
+@State(Scope.Thread)
+public class DistanceBenchmark {
+
+    @Param({ "4", "10", "11" })
+    public int codeLength;
+
+    @Param({ "UNIFORM", "POLAR" })
+    public Coordinates coordinates;
+
+    private OpenLocationCode.CodeArea[] mCodeAreas;
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        GoldenVectors.verify();
+        final String[] codes = Codes.encode(coordinates, codeLength);
+        mCodeAreas = new OpenLocationCode.CodeArea[Coordinates.SIZE];
+        for (int i = 0; i < Coordinates.SIZE; i++) {
+            mCodeAreas[i] = OpenLocationCode.decode(codes[i]);
+        }
+    }
+
+    @Benchmark
+    public float distance() {
+        mIndex = (mIndex + 1) & (Coordinates.SIZE - 1);
+        return OpenLocationCode.distance(mCodeAreas[mIndex]);
+    }
+
+}
@@ -0,0 +1,57 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+import me.shkschneider.openlocationcodes.PlusCode;
+
+@State(Scope.Thread)
+public class EncodeBenchmark {
+
+    @Param({ "4", "6", "8", "10", "11", "12", "13", "14", "15" })
+    public int codeLength;
+
+    @Param({ "UNIFORM", "URBAN", "POLAR", "ANTIMERIDIAN" })
+    public Coordinates coordinates;
+
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private final char[] mBuffer = new char[16];
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        GoldenVectors.verify();
+        mLatitudes = coordinates.latitudes();
+        mLongitudes = coordinates.longitudes();
+    }
+
+    private int next() {
+        mIndex = (mIndex + 1) & (Coordinates.SIZE - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public String encode() {
+        final int i = next();
+        return OpenLocationCode.encode(mLatitudes[i], mLongitudes[i], codeLength);
+    }
+
+    @Benchmark
+    public int encodeIntoBuffer() {
+        final int i = next();
+        return OpenLocationCode.encode(mLatitudes[i], mLongitudes[i], codeLength, mBuffer, 0);
+    }
+
+    @Benchmark
+    public long pack() {
+        final int i = next();
+        // Packed codes stop at PlusCode.CODE_MAX_LENGTH digits.
+        return PlusCode.pack(mLatitudes[i], mLongitudes[i], Math.min(codeLength, PlusCode.CODE_MAX_LENGTH));
+    }
+
+}
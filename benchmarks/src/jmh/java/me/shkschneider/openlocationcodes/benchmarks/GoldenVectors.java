@@ -0,0 +1,89 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+
+// Checks the engine against encoding.csv, decoding.csv and shortening.csv before any measurement,
+// so that a faster engine cannot silently change results.
+// The vectors come from the test data of the reference implementation (https://github.com/google/open-location-code),
+// never from this engine, so that they cannot lock in its bugs; each file names its source.
+public final class GoldenVectors {
+
+    private static final double EPSILON = 1e-10;
+
+    private static boolean sVerified = false;
+
+    private GoldenVectors() {
+        // Empty
+    }
+
+    public static synchronized void verify() {
+        if (sVerified) {
+            return;
+        }
+        for (final String[] vector : read("encoding.csv")) {
+            final String code = OpenLocationCode.encode(Double.parseDouble(vector[0]), Double.parseDouble(vector[1]), Integer.parseInt(vector[2]));
+            if (! code.equals(vector[3])) {
+                throw new IllegalStateException("encode(" + vector[0] + ", " + vector[1] + ", " + vector[2] + ") returned " + code + " instead of " + vector[3]);
+            }
+        }
+        for (final String[] vector : read("decoding.csv")) {
+            final OpenLocationCode.CodeArea codeArea = OpenLocationCode.decode(vector[0]);
+            if (codeArea.codeLength != Integer.parseInt(vector[1])
+                    || Math.abs(codeArea.latitudeLo - Double.parseDouble(vector[2])) > EPSILON
+                    || Math.abs(codeArea.longitudeLo - Double.parseDouble(vector[3])) > EPSILON
+                    || Math.abs(codeArea.latitudeHi - Double.parseDouble(vector[4])) > EPSILON
+                    || Math.abs(codeArea.longitudeHi - Double.parseDouble(vector[5])) > EPSILON) {
+                throw new IllegalStateException("decode(" + vector[0] + ") returned " + codeArea.latitudeLo + "," + codeArea.longitudeLo + "," + codeArea.latitudeHi + "," + codeArea.longitudeHi);
+            }
+        }
+        for (final String[] vector : read("shortening.csv")) {
+            final double latitude = Double.parseDouble(vector[1]);
+            final double longitude = Double.parseDouble(vector[2]);
+            if (vector[4].equals("B")) {
+                final String shortCode = OpenLocationCode.shorten(vector[0], latitude, longitude);
+                if (! shortCode.equals(vector[3])) {
+                    throw new IllegalStateException("shorten(" + vector[0] + ", " + vector[1] + ", " + vector[2] + ") returned " + shortCode + " instead of " + vector[3]);
+                }
+            }
+            final String code = OpenLocationCode.recover(vector[3], latitude, longitude);
+            if (! code.equals(vector[0])) {
+                throw new IllegalStateException("recover(" + vector[3] + ", " + vector[1] + ", " + vector[2] + ") returned " + code + " instead of " + vector[0]);
+            }
+        }
+        sVerified = true;
+    }
+
+    private static List<String[]> read(final String resource) {
+        final InputStream inputStream = GoldenVectors.class.getClassLoader().getResourceAsStream(resource);
+        if (inputStream == null) {
+            throw new IllegalStateException("Missing golden vectors: " + resource);
+        }
+        final List<String[]> vectors = new ArrayList<String[]>();
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (! line.isEmpty() && ! line.startsWith("#")) {
+                        vectors.add(line.split(","));
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return vectors;
+    }
+
+}
@@ -0,0 +1,71 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+
+@State(Scope.Thread)
+public class ShortenRecoverBenchmark {
+
+    @Param({ "UNIFORM", "URBAN", "POLAR", "ANTIMERIDIAN" })
+    public Coordinates coordinates;
+
+    private String[] mCodes;
+    private String[] mShortCodes;
+    private String[] mOut;
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        GoldenVectors.verify();
+        mCodes = Codes.encode(coordinates, OpenLocationCode.CODE_DEFAULT_LENGTH);
+        mShortCodes = new String[Coordinates.SIZE];
+        mOut = new String[Coordinates.SIZE];
+        mLatitudes = new double[Coordinates.SIZE];
+        mLongitudes = new double[Coordinates.SIZE];
+        for (int i = 0; i < Coordinates.SIZE; i++) {
+            // Reference a few hundred meters away from the code.
+            final OpenLocationCode.CodeArea codeArea = OpenLocationCode.decode(mCodes[i]);
+            mLatitudes[i] = codeArea.latitudeCenter + 0.002;
+            mLongitudes[i] = codeArea.longitudeCenter - 0.002;
+            mShortCodes[i] = OpenLocationCode.shorten(mCodes[i], mLatitudes[i], mLongitudes[i]);
+        }
+    }
+
+    private int next() {
+        mIndex = (mIndex + 1) & (Coordinates.SIZE - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public String shorten() {
+        final int i = next();
+        return OpenLocationCode.shorten(mCodes[i], mLatitudes[i], mLongitudes[i]);
+    }
+
+    @Benchmark
+    public String recover() {
+        final int i = next();
+        return OpenLocationCode.recover(mShortCodes[i], mLatitudes[i], mLongitudes[i]);
+    }
+
+    // Whole batches against the first reference (codes too far from it are copied as is).
+    @Benchmark
+    public String[] shortenAll() {
+        OpenLocationCode.shortenAll(mCodes, 0, Coordinates.SIZE, mLatitudes[0], mLongitudes[0], mOut, 0);
+        return mOut;
+    }
+
+    @Benchmark
+    public String[] recoverAll() {
+        OpenLocationCode.recoverAll(mShortCodes, 0, Coordinates.SIZE, mLatitudes[0], mLongitudes[0], mOut, 0);
+        return mOut;
+    }
+
+}
@@ -0,0 +1,37 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.SpatialJoin;
+
+@State(Scope.Thread)
+public class SpatialJoinBenchmark {
+
+    @Param({ "25", "1000" })
+    public double radius;
+
+    @Param({ "UNIFORM", "URBAN" })
+    public Coordinates coordinates;
+
+    private SpatialJoin mJoin;
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+
+    @Setup
+    public void setup() {
+        mJoin = new SpatialJoin(radius);
+        mLatitudes = coordinates.latitudes();
+        mLongitudes = coordinates.longitudes();
+    }
+
+    // Duplicates within the points, against the Coordinates.SIZE^2 / 2 pairs of a nested loop.
+    @Benchmark
+    public SpatialJoin.Pairs join() {
+        return mJoin.join(mLatitudes, mLongitudes);
+    }
+
+}
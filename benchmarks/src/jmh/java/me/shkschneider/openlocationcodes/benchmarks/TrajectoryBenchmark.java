@@ -0,0 +1,68 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.TrajectoryCodec;
+
+@State(Scope.Thread)
+public class TrajectoryBenchmark {
+
+    private static final long SEED = 20161016L;
+
+    @Param({ "8", "10", "11" })
+    public int codeLength;
+
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private long[] mTimes;
+    private ByteBuffer mTrack;
+
+    // A vehicle reporting every second, at speeds changing every few minutes, with a few meters of GPS noise.
+    @Setup
+    public void setup() {
+        final Random random = new Random(SEED);
+        mLatitudes = new double[Coordinates.SIZE];
+        mLongitudes = new double[Coordinates.SIZE];
+        mTimes = new long[Coordinates.SIZE];
+        double latitude = 48.8566;
+        double longitude = 2.3522;
+        double heading = 0;
+        double speed = 0;
+        for (int i = 0; i < Coordinates.SIZE; i++) {
+            if (random.nextInt(300) == 0) {
+                speed = random.nextDouble() * 20;
+            }
+            heading += random.nextGaussian() * 0.05;
+            latitude += speed * Math.cos(heading) / 111195;
+            longitude += speed * Math.sin(heading) / 73000;
+            mLatitudes[i] = latitude + random.nextGaussian() * 3 / 111195;
+            mLongitudes[i] = longitude + random.nextGaussian() * 3 / 73000;
+            mTimes[i] = 1000L * i;
+        }
+        mTrack = TrajectoryCodec.encode(mLatitudes, mLongitudes, mTimes, 0, Coordinates.SIZE, codeLength);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return TrajectoryCodec.encode(mLatitudes, mLongitudes, mTimes, 0, Coordinates.SIZE, codeLength);
+    }
+
+    @Benchmark
+    public long decode() {
+        final TrajectoryCodec.Decoder decoder = new TrajectoryCodec.Decoder(mTrack.duplicate());
+        long count = 0;
+        while (decoder.hasNext()) {
+            decoder.next();
+            count += decoder.count();
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,51 @@
+package me.shkschneider.openlocationcodes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.shkschneider.openlocationcodes.OpenLocationCode;
+
+// isValid(), isShort() and isFull() are classify() underneath.
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    @Param({ "UNIFORM", "URBAN" })
+    public Coordinates coordinates;
+
+    private String[] mCodes;
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        GoldenVectors.verify();
+        final String[] codes = Codes.encode(coordinates, OpenLocationCode.CODE_DEFAULT_LENGTH);
+        // A quarter each of full, lower case, short and invalid codes.
+        mCodes = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            switch (i % 4) {
+                case 1:
+                    mCodes[i] = codes[i].toLowerCase();
+                    break ;
+                case 2:
+                    mCodes[i] = codes[i].substring(4);
+                    break ;
+                case 3:
+                    mCodes[i] = codes[i].replace('+', 'A');
+                    break ;
+                default:
+                    mCodes[i] = codes[i];
+                    break ;
+            }
+        }
+    }
+
+    @Benchmark
+    public OpenLocationCode.Classification classify() {
+        mIndex = (mIndex + 1) & (Coordinates.SIZE - 1);
+        return OpenLocationCode.classify(mCodes[mIndex]);
+    }
+
+}
@@ -0,0 +1,255 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Counts events (and sums a value per event) per cell of a fixed code length, safe for concurrent writers.
+// Like a LongAdder, writers are spread over stripes by thread so that hot cells do not serialize them:
+// each stripe is a primitive map from packed code to count and sum, and snapshot() merges the stripes.
+public class CellAggregator {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int mCodeLength;
+    private final Stripe[] mStripes;
+
+    public CellAggregator(final int codeLength) throws IllegalArgumentException {
+        this(codeLength, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public CellAggregator(final int codeLength, final int stripes) throws IllegalArgumentException {
+        if (codeLength < 2 || codeLength > PlusCode.CODE_MAX_LENGTH || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+            throw new IllegalArgumentException("Invalid Open Location Code length: " + codeLength);
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Invalid number of stripes: " + stripes);
+        }
+        mCodeLength = codeLength;
+        // Rounded up to a power of two.
+        int length = 1;
+        while (length < stripes) {
+            length <<= 1;
+        }
+        mStripes = new Stripe[length];
+        for (int i = 0; i < mStripes.length; i++) {
+            mStripes[i] = new Stripe();
+        }
+    }
+
+    public int codeLength() {
+        return mCodeLength;
+    }
+
+    public void add(final double latitude, final double longitude) throws IllegalArgumentException {
+        add(latitude, longitude, 0.0);
+    }
+
+    public void add(final double latitude, final double longitude, final double value) throws IllegalArgumentException {
+        final long packed = PlusCode.pack(latitude, longitude, mCodeLength);
+        final Stripe stripe = stripe();
+        synchronized (stripe) {
+            stripe.add(packed, 1, value);
+        }
+    }
+
+    // Codes longer than the aggregator's length count towards their parent.
+    public void add(final long packed, final double value) throws IllegalArgumentException {
+        final long cell = PlusCode.parent(packed, mCodeLength);
+        final Stripe stripe = stripe();
+        synchronized (stripe) {
+            stripe.add(cell, 1, value);
+        }
+    }
+
+    // Adds events [from, to) under a single lock; values may be null.
+    public void addBatch(final double[] latitudes, final double[] longitudes, final double[] values, final int from, final int to) throws IllegalArgumentException {
+        if (from < 0 || to > latitudes.length || to > longitudes.length || (values != null && to > values.length) || from > to) {
+            throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+        }
+        final Stripe stripe = stripe();
+        synchronized (stripe) {
+            for (int i = from; i < to; i++) {
+                stripe.add(PlusCode.pack(latitudes[i], longitudes[i], mCodeLength), 1, (values != null) ? values[i] : 0.0);
+            }
+        }
+    }
+
+    // Not atomic across stripes: events added concurrently may or may not be included.
+    public Snapshot snapshot() {
+        int size = 0;
+        final long[][] codes = new long[mStripes.length][];
+        final long[][] counts = new long[mStripes.length][];
+        final double[][] sums = new double[mStripes.length][];
+        for (int i = 0; i < mStripes.length; i++) {
+            final Stripe stripe = mStripes[i];
+            synchronized (stripe) {
+                codes[i] = stripe.codes.keys();
+                counts[i] = Arrays.copyOf(stripe.counts, codes[i].length);
+                sums[i] = Arrays.copyOf(stripe.sums, codes[i].length);
+            }
+            size += codes[i].length;
+        }
+        // Gathers the codes of every stripe, sorts them (carrying their index) and merges equal codes.
+        final long[] keys = new long[size];
+        final int[] indexes = new int[size];
+        final int[] stripes = new int[size];
+        int n = 0;
+        for (int i = 0; i < codes.length; i++) {
+            for (int index = 0; index < codes[i].length; index++) {
+                keys[n] = codes[i][index];
+                indexes[n] = index;
+                stripes[n] = i;
+                n += 1;
+            }
+        }
+        final int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        PointIndex.sort(keys, order, 0, n - 1);
+        final Snapshot snapshot = new Snapshot(mCodeLength, n);
+        for (int i = 0; i < n; i++) {
+            final int j = order[i];
+            snapshot.append(keys[i], counts[stripes[j]][indexes[j]], sums[stripes[j]][indexes[j]]);
+        }
+        return snapshot.trim();
+    }
+
+    public void clear() {
+        for (final Stripe stripe : mStripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private Stripe stripe() {
+        return mStripes[(int) LongIndexMap.hash(Thread.currentThread().getId()) & (mStripes.length - 1)];
+    }
+
+    // Count and sum per packed code, indexed alike with the codes.
+    private static final class Stripe {
+
+        LongIndexMap codes = new LongIndexMap(INITIAL_CAPACITY);
+        long[] counts = new long[INITIAL_CAPACITY];
+        double[] sums = new double[INITIAL_CAPACITY];
+
+        void add(final long key, final long count, final double sum) {
+            final int index = codes.put(key);
+            if (index == counts.length) {
+                counts = Arrays.copyOf(counts, index * 2);
+                sums = Arrays.copyOf(sums, index * 2);
+            }
+            counts[index] += count;
+            sums[index] += sum;
+        }
+
+        void clear() {
+            codes = new LongIndexMap(INITIAL_CAPACITY);
+            counts = new long[INITIAL_CAPACITY];
+            sums = new double[INITIAL_CAPACITY];
+        }
+
+    }
+
+    // Immutable per-cell totals sorted by packed code.
+    public static final class Snapshot {
+
+        private final int mCodeLength;
+        private long[] mCodes;
+        private long[] mCounts;
+        private double[] mSums;
+        private int mSize;
+
+        private Snapshot(final int codeLength, final int capacity) {
+            mCodeLength = codeLength;
+            mCodes = new long[capacity];
+            mCounts = new long[capacity];
+            mSums = new double[capacity];
+        }
+
+        public int codeLength() {
+            return mCodeLength;
+        }
+
+        public int size() {
+            return mSize;
+        }
+
+        public long code(final int index) {
+            return mCodes[index];
+        }
+
+        public long count(final int index) {
+            return mCounts[index];
+        }
+
+        public double sum(final int index) {
+            return mSums[index];
+        }
+
+        // Index of the cell, or -(insertion point) - 1 like Arrays.binarySearch().
+        public int indexOf(final long packed) {
+            return Arrays.binarySearch(mCodes, 0, mSize, packed);
+        }
+
+        public long total() {
+            long total = 0;
+            for (int i = 0; i < mSize; i++) {
+                total += mCounts[i];
+            }
+            return total;
+        }
+
+        // Totals per coarser cell; truncating sorted codes keeps them sorted, so this is a single pass.
+        public Snapshot rollup(final int codeLength) throws IllegalArgumentException {
+            if (codeLength > mCodeLength) {
+                throw new IllegalArgumentException("Cannot roll up length " + mCodeLength + " to " + codeLength);
+            }
+            final Snapshot snapshot = new Snapshot(codeLength, mSize);
+            for (int i = 0; i < mSize; i++) {
+                snapshot.append(PlusCode.parent(mCodes[i], codeLength), mCounts[i], mSums[i]);
+            }
+            return snapshot.trim();
+        }
+
+        // Copies of the sorted columns.
+        public long[] codes() {
+            return Arrays.copyOf(mCodes, mSize);
+        }
+
+        public long[] counts() {
+            return Arrays.copyOf(mCounts, mSize);
+        }
+
+        public double[] sums() {
+            return Arrays.copyOf(mSums, mSize);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{codeLength=" + mCodeLength + ", size=" + mSize + "}";
+        }
+
+        // Codes must be appended in ascending order; equal codes are merged.
+        private void append(final long code, final long count, final double sum) {
+            if (mSize > 0 && mCodes[mSize - 1] == code) {
+                mCounts[mSize - 1] += count;
+                mSums[mSize - 1] += sum;
+                return ;
+            }
+            mCodes[mSize] = code;
+            mCounts[mSize] = count;
+            mSums[mSize] = sum;
+            mSize += 1;
+        }
+
+        private Snapshot trim() {
+            mCodes = Arrays.copyOf(mCodes, mSize);
+            mCounts = Arrays.copyOf(mCounts, mSize);
+            mSums = Arrays.copyOf(mSums, mSize);
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package me.shkschneider.openlocationcodes;
+
+// Decoded areas stored as parallel primitive columns, one row per code.
+public class CodeAreaBuffer {
+
+    public final double[] latitudeLo;
+    public final double[] longitudeLo;
+    public final double[] latitudeHi;
+    public final double[] longitudeHi;
+    public final double[] latitudeCenter;
+    public final double[] longitudeCenter;
+    public final int[] codeLength;
+
+    public CodeAreaBuffer(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        latitudeLo = new double[capacity];
+        longitudeLo = new double[capacity];
+        latitudeHi = new double[capacity];
+        longitudeHi = new double[capacity];
+        latitudeCenter = new double[capacity];
+        longitudeCenter = new double[capacity];
+        codeLength = new int[capacity];
+    }
+
+    public int capacity() {
+        return codeLength.length;
+    }
+
+    // Copies row index into out.
+    public void get(final int index, final OpenLocationCode.MutableCodeArea out) {
+        out.set(latitudeLo[index], longitudeLo[index], latitudeHi[index], longitudeHi[index], codeLength[index]);
+    }
+
+    void set(final int index, final OpenLocationCode.CodeArea codeArea) {
+        latitudeLo[index] = codeArea.latitudeLo;
+        longitudeLo[index] = codeArea.longitudeLo;
+        latitudeHi[index] = codeArea.latitudeHi;
+        longitudeHi[index] = codeArea.longitudeHi;
+        latitudeCenter[index] = codeArea.latitudeCenter;
+        longitudeCenter[index] = codeArea.longitudeCenter;
+        codeLength[index] = codeArea.codeLength;
+    }
+
+}
@@ -0,0 +1,261 @@
+package me.shkschneider.openlocationcodes;
+
+// Optional size-bounded cache in front of OpenLocationCode.encode() and decode(), safe for concurrent use.
+// Encoded codes are keyed by the index of their cell (so all coordinates in a cell share one entry) and
+// decoded areas by their packed code, both as primitive longs.
+// Entries live in 8-way buckets evicting the least recently used way; TINY_LFU additionally only admits
+// a new entry over its victim if a frequency sketch has seen it more often.
+// Codes longer than PlusCode.CODE_MAX_LENGTH bypass the cache.
+public class CodeCache {
+
+    public enum Eviction {
+
+        LRU,
+        TINY_LFU
+
+    }
+
+    private static final int SEGMENTS = 16;
+    private static final int WAYS = 8;
+
+    private final Segment[] mEncodeSegments = new Segment[SEGMENTS];
+    private final Segment[] mDecodeSegments = new Segment[SEGMENTS];
+
+    public CodeCache(final int maximumSize) {
+        this(maximumSize, Eviction.TINY_LFU);
+    }
+
+    // Each side holds up to maximumSize entries, rounded to whole buckets (at least 128).
+    public CodeCache(final int maximumSize, final Eviction eviction) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum size: " + maximumSize);
+        }
+        final int buckets = Math.max(1, maximumSize / (SEGMENTS * WAYS));
+        for (int i = 0; i < SEGMENTS; i++) {
+            mEncodeSegments[i] = new Segment(buckets, eviction, false);
+            mDecodeSegments[i] = new Segment(buckets, eviction, true);
+        }
+    }
+
+    public String encode(final double latitude, final double longitude, final int codeLength) throws IllegalArgumentException {
+        OpenLocationCode.encodedLength(codeLength);
+        if (codeLength > PlusCode.CODE_MAX_LENGTH) {
+            return OpenLocationCode.encode(latitude, longitude, codeLength);
+        }
+        final long key = OpenLocationCode.cellIndex(latitude, longitude, codeLength);
+        final long hash = LongIndexMap.hash(key);
+        final Segment segment = mEncodeSegments[segment(hash)];
+        synchronized (segment) {
+            final int slot = segment.find(key, hash);
+            if (slot != -1) {
+                return (String) segment.values[slot];
+            }
+        }
+        final String code = OpenLocationCode.encode(latitude, longitude, codeLength);
+        synchronized (segment) {
+            final int slot = segment.admit(key, hash);
+            if (slot != -1) {
+                segment.values[slot] = code;
+            }
+        }
+        return code;
+    }
+
+    public OpenLocationCode.CodeArea decode(final String code) throws IllegalArgumentException {
+        final OpenLocationCode.MutableCodeArea codeArea = new OpenLocationCode.MutableCodeArea();
+        if (code == null || ! decodeInto(code, codeArea)) {
+            throw new IllegalArgumentException("Passed Open Location Code is not a valid full code (" + OpenLocationCode.classify(code) + "): " + code);
+        }
+        return codeArea;
+    }
+
+    // Returns false (and leaves out untouched) if code is not a valid full code.
+    public boolean decodeInto(final CharSequence code, final OpenLocationCode.MutableCodeArea out) {
+        final int length = code.length();
+        if (OpenLocationCode.classify(code, 0, length) != OpenLocationCode.Classification.VALID_FULL) {
+            return false;
+        }
+        if (length > PlusCode.CODE_MAX_LENGTH + 1) {
+            return OpenLocationCode.decodeInto(code, 0, length, out);
+        }
+        final long key = PlusCode.pack(code, 0, length, false);
+        final long hash = LongIndexMap.hash(key);
+        final Segment segment = mDecodeSegments[segment(hash)];
+        synchronized (segment) {
+            final int slot = segment.find(key, hash);
+            if (slot != -1) {
+                final int area = slot * 4;
+                out.set(segment.areas[area], segment.areas[area + 1], segment.areas[area + 2], segment.areas[area + 3], PlusCode.codeLength(key));
+                return true;
+            }
+        }
+        OpenLocationCode.setArea(out, PlusCode.latitudeValue(key), PlusCode.longitudeValue(key), PlusCode.codeLength(key));
+        synchronized (segment) {
+            final int slot = segment.admit(key, hash);
+            if (slot != -1) {
+                final int area = slot * 4;
+                segment.areas[area] = out.latitudeLo;
+                segment.areas[area + 1] = out.longitudeLo;
+                segment.areas[area + 2] = out.latitudeHi;
+                segment.areas[area + 3] = out.longitudeHi;
+            }
+        }
+        return true;
+    }
+
+    public long encodeHits() {
+        return count(mEncodeSegments, true);
+    }
+
+    public long encodeMisses() {
+        return count(mEncodeSegments, false);
+    }
+
+    public long decodeHits() {
+        return count(mDecodeSegments, true);
+    }
+
+    public long decodeMisses() {
+        return count(mDecodeSegments, false);
+    }
+
+    // Entries per side.
+    public int capacity() {
+        return SEGMENTS * mEncodeSegments[0].keys.length;
+    }
+
+    public void clear() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            mEncodeSegments[i].clear();
+            mDecodeSegments[i].clear();
+        }
+    }
+
+    private static long count(final Segment[] segments, final boolean hits) {
+        long count = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                count += (hits ? segment.hits : segment.misses);
+            }
+        }
+        return count;
+    }
+
+    private static int segment(final long hash) {
+        return (int) (hash >>> 60) & (SEGMENTS - 1);
+    }
+
+    // Set-associative table of primitive keys, guarded by its own monitor.
+    private static final class Segment {
+
+        private static final int SKETCH_DEPTH = 4;
+        private static final int COUNTER_MAX = 15;
+
+        final long[] keys;
+        // Last access per slot, 0 for empty slots.
+        final long[] stamps;
+        final Object[] values;
+        final double[] areas;
+        final byte[] sketch;
+        long clock;
+        long hits;
+        long misses;
+        private int mSketchAdditions;
+
+        Segment(final int buckets, final Eviction eviction, final boolean areas) {
+            keys = new long[buckets * WAYS];
+            stamps = new long[buckets * WAYS];
+            values = areas ? null : new Object[buckets * WAYS];
+            this.areas = areas ? new double[buckets * WAYS * 4] : null;
+            sketch = (eviction == Eviction.TINY_LFU) ? new byte[Integer.highestOneBit(buckets * WAYS) * 4] : null;
+        }
+
+        // Slot holding key, or -1.
+        int find(final long key, final long hash) {
+            record(hash);
+            final int bucket = bucket(hash);
+            for (int slot = bucket; slot < bucket + WAYS; slot++) {
+                if (stamps[slot] != 0 && keys[slot] == key) {
+                    stamps[slot] = ++clock;
+                    hits += 1;
+                    return slot;
+                }
+            }
+            misses += 1;
+            return -1;
+        }
+
+        // Slot to store key into, or -1 if it is not admitted.
+        int admit(final long key, final long hash) {
+            final int bucket = bucket(hash);
+            int victim = bucket;
+            for (int slot = bucket; slot < bucket + WAYS; slot++) {
+                if (stamps[slot] == 0 || keys[slot] == key) {
+                    victim = slot;
+                    break ;
+                }
+                if (stamps[slot] < stamps[victim]) {
+                    victim = slot;
+                }
+            }
+            if (sketch != null && stamps[victim] != 0 && keys[victim] != key && frequency(hash) <= frequency(LongIndexMap.hash(keys[victim]))) {
+                return -1;
+            }
+            keys[victim] = key;
+            stamps[victim] = ++clock;
+            if (values != null) {
+                values[victim] = null;
+            }
+            return victim;
+        }
+
+        void clear() {
+            synchronized (this) {
+                for (int slot = 0; slot < stamps.length; slot++) {
+                    stamps[slot] = 0;
+                    if (values != null) {
+                        values[slot] = null;
+                    }
+                }
+            }
+        }
+
+        private int bucket(final long hash) {
+            return (int) ((hash & Integer.MAX_VALUE) % (keys.length / WAYS)) * WAYS;
+        }
+
+        // Count-min sketch of saturating counters, halved periodically so that old popularity fades.
+        private void record(final long hash) {
+            if (sketch == null) {
+                return;
+            }
+            for (int i = 0; i < SKETCH_DEPTH; i++) {
+                final int counter = counter(hash, i);
+                if (sketch[counter] < COUNTER_MAX) {
+                    sketch[counter] += 1;
+                }
+            }
+            if (++mSketchAdditions >= keys.length * 10) {
+                for (int counter = 0; counter < sketch.length; counter++) {
+                    sketch[counter] >>= 1;
+                }
+                mSketchAdditions /= 2;
+            }
+        }
+
+        private int frequency(final long hash) {
+            int frequency = COUNTER_MAX;
+            for (int i = 0; i < SKETCH_DEPTH; i++) {
+                frequency = Math.min(frequency, sketch[counter(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int counter(final long hash, final int i) {
+            final long row = LongIndexMap.hash(hash + i * 0x632BE59BD9B4E019L);
+            return (int) (row >>> 40) & (sketch.length - 1);
+        }
+
+    }
+
+}
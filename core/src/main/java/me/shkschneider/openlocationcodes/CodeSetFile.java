@@ -0,0 +1,252 @@
+package me.shkschneider.openlocationcodes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Read-only set of packed full codes stored in a file, searched in place through memory mapping
+// so that opening costs a single mmap, nothing is loaded onto the heap, and files may be larger than memory.
+//
+// Layout (big-endian):
+// - header: magic "OLCS", version (int), number of codes (long), number of payload columns (int), reserved (int)
+// - codes: strictly ascending packed codes (long), which may be of mixed lengths
+// - payload columns: one long per code each, in the same order (doubles as Double.doubleToRawLongBits())
+//
+// Safe for concurrent readers.
+public class CodeSetFile implements Closeable {
+
+    private static final int MAGIC = 0x4F4C4353;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 24;
+    // Mapped regions of 1GB; codes and payloads are 8-byte aligned so none straddles two regions.
+    private static final int REGION_SHIFT = 30;
+    private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+    private static final int[] LENGTHS = { 2, 4, 6, 8, 10, 11 };
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer[] mRegions;
+    private final long mSize;
+    private final int mColumns;
+
+    private CodeSetFile(final RandomAccessFile file, final MappedByteBuffer[] regions, final long size, final int columns) {
+        mFile = file;
+        mRegions = regions;
+        mSize = size;
+        mColumns = columns;
+    }
+
+    public static CodeSetFile open(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long length = channel.size();
+            final MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((length + REGION_MASK) >>> REGION_SHIFT)];
+            for (int i = 0; i < regions.length; i++) {
+                final long position = (long) i << REGION_SHIFT;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_MASK + 1, length - position));
+            }
+            if (length < HEADER_LENGTH || regions[0].getInt(0) != MAGIC || regions[0].getInt(4) != VERSION) {
+                throw new IOException("Not a code set file: " + file);
+            }
+            final long size = regions[0].getLong(8);
+            final int columns = regions[0].getInt(16);
+            if (size < 0 || columns < 0 || length != fileLength(size, columns)) {
+                throw new IOException("Truncated or corrupt code set file: " + file);
+            }
+            return new CodeSetFile(randomAccessFile, regions, size, columns);
+        }
+        catch (final IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    private static long fileLength(final long size, final int columns) {
+        return HEADER_LENGTH + 8 * size * (1 + columns);
+    }
+
+    public long size() {
+        return mSize;
+    }
+
+    public int columns() {
+        return mColumns;
+    }
+
+    public long code(final long index) {
+        checkIndex(index);
+        return getLong(HEADER_LENGTH + 8 * index);
+    }
+
+    public long payload(final long index, final int column) {
+        checkIndex(index);
+        if (column < 0 || column >= mColumns) {
+            throw new IndexOutOfBoundsException("Invalid column: " + column);
+        }
+        return getLong(HEADER_LENGTH + 8 * (mSize * (1 + column) + index));
+    }
+
+    // Index of the packed code, or -(insertion point) - 1 like Arrays.binarySearch().
+    public long indexOf(final long packed) {
+        long lo = 0;
+        long hi = mSize - 1;
+        while (lo <= hi) {
+            final long middle = (lo + hi) >>> 1;
+            final long code = getLong(HEADER_LENGTH + 8 * middle);
+            if (code < packed) {
+                lo = middle + 1;
+            }
+            else if (code > packed) {
+                hi = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // Index of the longest code whose cell contains the coordinates, or -1.
+    public long find(final double latitude, final double longitude) {
+        final long packed = PlusCode.pack(latitude, longitude, PlusCode.CODE_MAX_LENGTH);
+        for (int i = LENGTHS.length - 1; i >= 0; i--) {
+            final long index = indexOf(PlusCode.parent(packed, LENGTHS[i]));
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    // First index of the codes within the cell (the cell itself and its descendants).
+    public long from(final long cell) throws IllegalArgumentException {
+        final long index = indexOf(PlusCode.rangeMin(cell));
+        return (index >= 0) ? index : -index - 1;
+    }
+
+    // Index after the last of the codes within the cell, so that [from(cell), to(cell)) is a prefix scan.
+    public long to(final long cell) throws IllegalArgumentException {
+        final long index = indexOf(PlusCode.rangeMax(cell));
+        return (index >= 0) ? index + 1 : -index - 1;
+    }
+
+    // Mappings are released when garbage collected.
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+
+    private void checkIndex(final long index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+    }
+
+    private long getLong(final long position) {
+        return mRegions[(int) (position >>> REGION_SHIFT)].getLong((int) (position & REGION_MASK));
+    }
+
+    // Writes a code set file from codes added in strictly ascending order, streaming each column to its place.
+    public static final class Writer implements Closeable {
+
+        private static final int BUFFER_LENGTH = 64 * 1024;
+
+        private final RandomAccessFile mFile;
+        private final FileChannel mChannel;
+        private final long mSize;
+        // Codes, then each payload column.
+        private final ByteBuffer[] mBuffers;
+        private final long[] mPositions;
+        private long mCount;
+        private long mLast = -1;
+
+        public Writer(final File file, final long size, final int columns) throws IOException, IllegalArgumentException {
+            if (size < 0 || columns < 0) {
+                throw new IllegalArgumentException("Invalid code set size: " + size + " codes and " + columns + " columns");
+            }
+            mFile = new RandomAccessFile(file, "rw");
+            mChannel = mFile.getChannel();
+            mSize = size;
+            mBuffers = new ByteBuffer[1 + columns];
+            mPositions = new long[1 + columns];
+            for (int i = 0; i < mBuffers.length; i++) {
+                mBuffers[i] = ByteBuffer.allocate(BUFFER_LENGTH);
+                mPositions[i] = HEADER_LENGTH + 8 * size * i;
+            }
+            mFile.setLength(fileLength(size, columns));
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).putInt(VERSION).putLong(size).putInt(columns).putInt(0);
+            header.flip();
+            write(header, 0);
+        }
+
+        public void add(final long packed) throws IOException, IllegalArgumentException {
+            add(packed, null);
+        }
+
+        // payload holds one value per column (may be null without columns).
+        public void add(final long packed, final long[] payload) throws IOException, IllegalArgumentException {
+            if (PlusCode.isShort(packed) || ! PlusCode.isValid(packed)) {
+                throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + packed);
+            }
+            if (packed <= mLast) {
+                throw new IllegalArgumentException("Codes must be added in strictly ascending order: " + PlusCode.unpack(packed));
+            }
+            if (mCount == mSize) {
+                throw new IllegalArgumentException("Code set already holds " + mSize + " codes");
+            }
+            if ((payload == null ? 0 : payload.length) != mBuffers.length - 1) {
+                throw new IllegalArgumentException("Invalid payload: expected " + (mBuffers.length - 1) + " columns");
+            }
+            put(0, packed);
+            for (int i = 1; i < mBuffers.length; i++) {
+                put(i, payload[i - 1]);
+            }
+            mLast = packed;
+            mCount += 1;
+        }
+
+        // Fails if fewer codes were added than announced.
+        @Override
+        public void close() throws IOException {
+            try {
+                for (int i = 0; i < mBuffers.length; i++) {
+                    flush(i);
+                }
+                if (mCount != mSize) {
+                    throw new IOException("Code set closed with " + mCount + " of " + mSize + " codes");
+                }
+            }
+            finally {
+                mFile.close();
+            }
+        }
+
+        private void put(final int buffer, final long value) throws IOException {
+            if (! mBuffers[buffer].hasRemaining()) {
+                flush(buffer);
+            }
+            mBuffers[buffer].putLong(value);
+        }
+
+        private void flush(final int buffer) throws IOException {
+            mBuffers[buffer].flip();
+            mPositions[buffer] += write(mBuffers[buffer], mPositions[buffer]);
+            mBuffers[buffer].clear();
+        }
+
+        private int write(final ByteBuffer buffer, final long position) throws IOException {
+            int written = 0;
+            while (buffer.hasRemaining()) {
+                written += mChannel.write(buffer, position + written);
+            }
+            return written;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package me.shkschneider.openlocationcodes;
+
+// Allocation-free distance kernels on primitives and packed codes, and cell dimensions, on a spherical Earth of OpenLocationCode.EARTH_RADIUS.
+// Cell heights only depend on the code length; cell widths come from a table per code length and 1 degree latitude band, interpolated.
+public final class Distances {
+
+    private static final int MAX_CODE_LENGTH = OpenLocationCode.PAIR_CODE_LENGTH + OpenLocationCode.GRID_CODE_LENGTH;
+    private static final int BANDS = 2 * OpenLocationCode.LATITUDE_MAX;
+    // Meters per degree along a meridian.
+    private static final double METERS_PER_DEGREE = Math.toRadians(OpenLocationCode.EARTH_RADIUS);
+
+    static final int CENTER_LENGTH = 5;
+
+    private static final double[] HEIGHTS = new double[MAX_CODE_LENGTH + 1];
+    // Width of a cell of each code length at each band edge (-90, -89... 90 degrees).
+    private static final double[][] WIDTHS = new double[MAX_CODE_LENGTH + 1][BANDS + 1];
+
+    static {
+        for (int codeLength = 2; codeLength <= MAX_CODE_LENGTH; codeLength++) {
+            HEIGHTS[codeLength] = METERS_PER_DEGREE * OpenLocationCode.latitudePlaceValue(codeLength) / OpenLocationCode.LATITUDE_PRECISION;
+            final double width = METERS_PER_DEGREE * OpenLocationCode.longitudePlaceValue(codeLength) / OpenLocationCode.LONGITUDE_PRECISION;
+            for (int band = 0; band <= BANDS; band++) {
+                WIDTHS[codeLength][band] = width * Math.cos(Math.toRadians(band - OpenLocationCode.LATITUDE_MAX));
+            }
+        }
+    }
+
+    private Distances() {
+        // Empty
+    }
+
+    // Cells
+
+    // North-south size in meters of cells of the given length.
+    public static double cellHeight(final int codeLength) throws IllegalArgumentException {
+        checkLength(codeLength);
+        return HEIGHTS[codeLength];
+    }
+
+    // East-west size in meters of cells of the given length at the given latitude.
+    public static double cellWidth(final int codeLength, final double latitude) throws IllegalArgumentException {
+        checkLength(codeLength);
+        final double position = Math.min(BANDS, Math.max(0, latitude + OpenLocationCode.LATITUDE_MAX));
+        final int band = Math.min(BANDS - 1, (int) position);
+        final double fraction = position - band;
+        return WIDTHS[codeLength][band] + (WIDTHS[codeLength][band + 1] - WIDTHS[codeLength][band]) * fraction;
+    }
+
+    public static double cellHeight(final long packed) throws IllegalArgumentException {
+        checkFull(packed);
+        return HEIGHTS[PlusCode.codeLength(packed)];
+    }
+
+    // At the latitude of the cell's center.
+    public static double cellWidth(final long packed) throws IllegalArgumentException {
+        checkFull(packed);
+        return cellWidth(PlusCode.codeLength(packed), centerLatitude(packed));
+    }
+
+    // Kernels
+
+    // Great-circle distance in meters (haversine), same as OpenLocationCode.distance().
+    public static double haversine(final double latitude1, final double longitude1, final double latitude2, final double longitude2) {
+        return OpenLocationCode.distance(latitude1, longitude1, latitude2, longitude2);
+    }
+
+    // Equirectangular approximation in meters: faster, and within 0.1% of haversine up to about 100km away from the poles.
+    public static double equirectangular(final double latitude1, final double longitude1, final double latitude2, final double longitude2) {
+        double longitudeDelta = longitude2 - longitude1;
+        if (longitudeDelta > OpenLocationCode.LONGITUDE_MAX) {
+            longitudeDelta -= 2 * OpenLocationCode.LONGITUDE_MAX;
+        }
+        else if (longitudeDelta < -OpenLocationCode.LONGITUDE_MAX) {
+            longitudeDelta += 2 * OpenLocationCode.LONGITUDE_MAX;
+        }
+        final double x = longitudeDelta * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        final double y = latitude2 - latitude1;
+        return METERS_PER_DEGREE * Math.sqrt(x * x + y * y);
+    }
+
+    // Haversine distance between the centers of two packed full codes.
+    public static double distance(final long packed1, final long packed2) throws IllegalArgumentException {
+        checkFull(packed1);
+        checkFull(packed2);
+        return haversine(centerLatitude(packed1), centerLongitude(packed1), centerLatitude(packed2), centerLongitude(packed2));
+    }
+
+    // Matrix
+
+    // Haversine distances between the centers of rows and columns (packed full codes), row-major: out[i * columns.length + j].
+    public static void matrix(final long[] rows, final long[] columns, final double[] out) throws IllegalArgumentException {
+        checkMatrix(rows, columns, out);
+        matrix(rows, 0, rows.length, centers(columns), out);
+    }
+
+    static void checkMatrix(final long[] rows, final long[] columns, final double[] out) throws IllegalArgumentException {
+        if ((long) rows.length * columns.length > out.length) {
+            throw new IllegalArgumentException("Output too small for " + rows.length + "x" + columns.length + " distances");
+        }
+    }
+
+    // Per code center, interleaved: sine and cosine of half the latitude, of half the longitude, and cosine of the latitude,
+    // so that the matrix needs no trigonometry per pair besides the final arc.
+    static double[] centers(final long[] codes) throws IllegalArgumentException {
+        final double[] centers = new double[CENTER_LENGTH * codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            checkFull(codes[i]);
+            center(codes[i], centers, CENTER_LENGTH * i);
+        }
+        return centers;
+    }
+
+    // Fills rows [from, to) of the matrix against the columns' centers().
+    static void matrix(final long[] rows, final int from, final int to, final double[] columns, final double[] out) throws IllegalArgumentException {
+        final int width = columns.length / CENTER_LENGTH;
+        final double[] row = new double[CENTER_LENGTH];
+        for (int i = from; i < to; i++) {
+            checkFull(rows[i]);
+            center(rows[i], row, 0);
+            int position = i * width;
+            for (int j = 0; j < columns.length; j += CENTER_LENGTH) {
+                out[position++] = meters(haversine(row, 0, columns, j));
+            }
+        }
+    }
+
+    // Haversine of the central angle between two centers, at the given offsets of centers() arrays.
+    static double haversine(final double[] centers1, final int offset1, final double[] centers2, final int offset2) {
+        // Half-angle differences expanded, sin((a - b) / 2) = sin(a / 2) cos(b / 2) - cos(a / 2) sin(b / 2), exact for close points.
+        final double latitudeSin = centers2[offset2] * centers1[offset1 + 1] - centers2[offset2 + 1] * centers1[offset1];
+        final double longitudeSin = centers2[offset2 + 2] * centers1[offset1 + 3] - centers2[offset2 + 3] * centers1[offset1 + 2];
+        return latitudeSin * latitudeSin + centers1[offset1 + 4] * centers2[offset2 + 4] * longitudeSin * longitudeSin;
+    }
+
+    // Great-circle distance in meters for the haversine of its central angle: asin(sqrt(a)), through atan2() past a quarter
+    // where asin() gets several times slower for the same result.
+    static double meters(double a) {
+        a = Math.min(1, a);
+        return 2 * OpenLocationCode.EARTH_RADIUS * ((a < 0.25) ? Math.asin(Math.sqrt(a)) : Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+    }
+
+    // Fills CENTER_LENGTH values at offset for the coordinates, in degrees.
+    static void center(final double latitude, final double longitude, final double[] out, final int offset) {
+        final double latitudeRadians = Math.toRadians(latitude);
+        final double longitudeRadians = Math.toRadians(longitude);
+        final double latitudeSin = Math.sin(latitudeRadians / 2);
+        out[offset] = latitudeSin;
+        out[offset + 1] = Math.cos(latitudeRadians / 2);
+        out[offset + 2] = Math.sin(longitudeRadians / 2);
+        out[offset + 3] = Math.cos(longitudeRadians / 2);
+        // cos(a) = 1 - 2 sin(a / 2)^2.
+        out[offset + 4] = 1 - 2 * latitudeSin * latitudeSin;
+    }
+
+    private static void center(final long packed, final double[] out, final int offset) {
+        center(centerLatitude(packed), centerLongitude(packed), out, offset);
+    }
+
+    private static double centerLatitude(final long packed) {
+        return (PlusCode.latitudeValue(packed) + OpenLocationCode.latitudePlaceValue(PlusCode.codeLength(packed)) / 2.0) / OpenLocationCode.LATITUDE_PRECISION;
+    }
+
+    private static double centerLongitude(final long packed) {
+        return (PlusCode.longitudeValue(packed) + OpenLocationCode.longitudePlaceValue(PlusCode.codeLength(packed)) / 2.0) / OpenLocationCode.LONGITUDE_PRECISION;
+    }
+
+    private static void checkLength(final int codeLength) throws IllegalArgumentException {
+        if (codeLength < 2 || codeLength > MAX_CODE_LENGTH || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+            throw new IllegalArgumentException("Invalid Open Location Code length: " + codeLength);
+        }
+    }
+
+    private static void checkFull(final long packed) throws IllegalArgumentException {
+        if (PlusCode.isShort(packed) || ! PlusCode.isValid(packed)) {
+            throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + packed);
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Immutable set of zones, each a set of cells (packed full codes of any length), compiled into a primitive hash map
+// from cell to the zones holding it, safe for concurrent readers.
+// A fix is encoded once, then each of its prefixes whose length some zone uses is looked up: O(code length) per fix,
+// however many zones there are.
+public class GeofenceEngine {
+
+    private static final int[] LENGTHS = { 2, 4, 6, 8, 10, 11 };
+
+    // Only read once built; the zones of the cell at index i are mZones[mStarts[i], mEnds[i]).
+    private final LongIndexMap mCells;
+    private final int[] mStarts;
+    private final int[] mEnds;
+    private final int[] mZones;
+    // Bit set of the cell lengths used.
+    private final int mLengths;
+    private final int mMaxLength;
+
+    private GeofenceEngine(final long[] cells, final int[] zones, final int size) {
+        // Cells and zones come sorted and deduplicated, so that each cell's zones are contiguous and ascending.
+        int unique = 0;
+        int lengths = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || cells[i] != cells[i - 1]) {
+                unique += 1;
+                lengths |= 1 << PlusCode.codeLength(cells[i]);
+            }
+        }
+        mCells = new LongIndexMap(unique);
+        mStarts = new int[unique];
+        mEnds = new int[unique];
+        mZones = Arrays.copyOf(zones, size);
+        mLengths = lengths;
+        int maxLength = 0;
+        for (final int length : LENGTHS) {
+            if ((lengths & (1 << length)) != 0) {
+                maxLength = length;
+            }
+        }
+        mMaxLength = maxLength;
+        for (int i = 0; i < size; i++) {
+            final int index = mCells.put(cells[i]);
+            if (i == 0 || cells[i] != cells[i - 1]) {
+                mStarts[index] = i;
+            }
+            mEnds[index] = i + 1;
+        }
+    }
+
+    // Writes the zones containing the coordinates into out (ascending, each once) and returns how many there are;
+    // when out is too small, returns more than out.length (an upper bound to retry with), having written the smallest zones.
+    public int match(final double latitude, final double longitude, final int[] out) throws IllegalArgumentException {
+        if (mMaxLength == 0) {
+            return 0;
+        }
+        return match(PlusCode.pack(latitude, longitude, Math.max(mMaxLength, 4)), out, 0, out.length);
+    }
+
+    // Same for a packed full code, counting the zones holding it or any of its ancestors.
+    public int match(final long packed, final int[] out) throws IllegalArgumentException {
+        if (PlusCode.isShort(packed) || ! PlusCode.isValid(packed)) {
+            throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + packed);
+        }
+        return match(packed, out, 0, out.length);
+    }
+
+    // Stops at the first cell found, without collecting zones.
+    public boolean isInside(final double latitude, final double longitude) throws IllegalArgumentException {
+        if (mMaxLength == 0) {
+            return false;
+        }
+        final long packed = PlusCode.pack(latitude, longitude, Math.max(mMaxLength, 4));
+        for (final int length : LENGTHS) {
+            if (length > mMaxLength) {
+                break ;
+            }
+            if ((mLengths & (1 << length)) != 0 && mCells.get(PlusCode.parent(packed, length)) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Matches latitudes[from, to) and longitudes[from, to), the zones of fix i being
+    // matches.zones()[matches.offsets()[i - from], matches.offsets()[i - from + 1]).
+    public Matches matchAll(final double[] latitudes, final double[] longitudes, final int from, final int to) throws IllegalArgumentException {
+        if (from < 0 || from > to || to > latitudes.length || to > longitudes.length) {
+            throw new IllegalArgumentException("Invalid batch range: " + from + "-" + to);
+        }
+        final int[] offsets = new int[to - from + 1];
+        int[] zones = new int[Math.max(16, to - from)];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            if (mMaxLength != 0) {
+                final long packed = PlusCode.pack(latitudes[i], longitudes[i], Math.max(mMaxLength, 4));
+                int count = match(packed, zones, size, zones.length - size);
+                if (size + count > zones.length) {
+                    zones = Arrays.copyOf(zones, Math.max(zones.length * 2, size + count));
+                    count = match(packed, zones, size, zones.length - size);
+                }
+                size += count;
+            }
+            offsets[i - from + 1] = size;
+        }
+        return new Matches(offsets, Arrays.copyOf(zones, size));
+    }
+
+    // Writes up to capacity zones at out[offset], sorted and deduplicated, returning the total (or an upper bound past capacity).
+    private int match(final long packed, final int[] out, final int offset, final int capacity) {
+        final int codeLength = PlusCode.codeLength(packed);
+        int count = 0;
+        for (final int length : LENGTHS) {
+            if (length > codeLength) {
+                break ;
+            }
+            if ((mLengths & (1 << length)) == 0) {
+                continue ;
+            }
+            final int index = mCells.get(PlusCode.parent(packed, length));
+            if (index == -1) {
+                continue ;
+            }
+            for (int i = mStarts[index]; i < mEnds[index]; i++) {
+                count = insert(mZones[i], out, offset, capacity, count);
+            }
+        }
+        return count;
+    }
+
+    // Inserts zone into the sorted out[offset, offset + count) unless present; past capacity, dropped zones may be counted twice.
+    private static int insert(final int zone, final int[] out, final int offset, final int capacity, final int count) {
+        final int written = Math.min(count, capacity);
+        int position = Arrays.binarySearch(out, offset, offset + written, zone);
+        if (position >= 0) {
+            return count;
+        }
+        position = -position - 1;
+        if (written < capacity) {
+            System.arraycopy(out, position, out, position + 1, offset + written - position);
+            out[position] = zone;
+        }
+        else if (position < offset + written) {
+            // Full: keeps the smallest zones, dropping the last one.
+            System.arraycopy(out, position, out, position + 1, offset + written - position - 1);
+            out[position] = zone;
+        }
+        return count + 1;
+    }
+
+    // Collects the cells of each zone; a zone may hold overlapping cells.
+    public static final class Builder {
+
+        private long[] mCells = new long[64];
+        private int[] mZones = new int[64];
+        private int mSize;
+
+        public Builder add(final int zone, final long cell) throws IllegalArgumentException {
+            if (PlusCode.isShort(cell) || ! PlusCode.isValid(cell)) {
+                throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + cell);
+            }
+            if (mSize == mCells.length) {
+                mCells = Arrays.copyOf(mCells, mSize * 2);
+                mZones = Arrays.copyOf(mZones, mSize * 2);
+            }
+            mCells[mSize] = cell;
+            mZones[mSize] = zone;
+            mSize += 1;
+            return this;
+        }
+
+        public Builder add(final int zone, final CharSequence code) throws IllegalArgumentException {
+            return add(zone, PlusCode.pack(code));
+        }
+
+        public Builder add(final int zone, final long[] cells) throws IllegalArgumentException {
+            for (final long cell : cells) {
+                add(zone, cell);
+            }
+            return this;
+        }
+
+        public GeofenceEngine build() {
+            final long[] cells = Arrays.copyOf(mCells, mSize);
+            final int[] zones = Arrays.copyOf(mZones, mSize);
+            // Sorts by cell, then each cell's zones.
+            PointIndex.sort(cells, zones, 0, mSize - 1);
+            int start = 0;
+            for (int i = 1; i <= mSize; i++) {
+                if (i == mSize || cells[i] != cells[start]) {
+                    Arrays.sort(zones, start, i);
+                    start = i;
+                }
+            }
+            // Drops duplicate (cell, zone) pairs.
+            int size = 0;
+            for (int i = 0; i < mSize; i++) {
+                if (size == 0 || cells[i] != cells[size - 1] || zones[i] != zones[size - 1]) {
+                    cells[size] = cells[i];
+                    zones[size] = zones[i];
+                    size += 1;
+                }
+            }
+            return new GeofenceEngine(cells, zones, size);
+        }
+
+    }
+
+    // Zones matched by a batch of fixes, in compressed rows.
+    public static final class Matches {
+
+        private final int[] mOffsets;
+        private final int[] mZones;
+
+        private Matches(final int[] offsets, final int[] zones) {
+            mOffsets = offsets;
+            mZones = zones;
+        }
+
+        public int size() {
+            return mOffsets.length - 1;
+        }
+
+        public int count(final int fix) {
+            return mOffsets[fix + 1] - mOffsets[fix];
+        }
+
+        public int zone(final int fix, final int index) {
+            return mZones[mOffsets[fix] + index];
+        }
+
+        public int[] offsets() {
+            return mOffsets;
+        }
+
+        public int[] zones() {
+            return mZones;
+        }
+
+    }
+
+    public interface Listener {
+
+        void onEnter(final long device, final int zone);
+
+        void onExit(final long device, final int zone);
+
+    }
+
+    // Remembers the zones each device was last in, reporting transitions; not safe for concurrent use
+    // (partition devices across trackers instead).
+    public static final class Tracker {
+
+        private static final int[] NONE = new int[0];
+
+        private final GeofenceEngine mEngine;
+        private final Listener mListener;
+        // Sorted zones of each device, indexed alike with the devices.
+        private final LongIndexMap mDevices = new LongIndexMap();
+        private int[][] mStates = new int[16][];
+        private int[] mBuffer = new int[16];
+
+        public Tracker(final GeofenceEngine engine, final Listener listener) {
+            mEngine = engine;
+            mListener = listener;
+        }
+
+        public int size() {
+            return mDevices.size();
+        }
+
+        public void update(final long device, final double latitude, final double longitude) throws IllegalArgumentException {
+            int count = mEngine.match(latitude, longitude, mBuffer);
+            if (count > mBuffer.length) {
+                mBuffer = new int[count];
+                count = mEngine.match(latitude, longitude, mBuffer);
+            }
+            final int index = mDevices.put(device);
+            if (index == mStates.length) {
+                mStates = Arrays.copyOf(mStates, index * 2);
+            }
+            if (mStates[index] == null) {
+                mStates[index] = NONE;
+            }
+            final int[] previous = mStates[index];
+            // Merges the sorted zone lists: zones only in the new list are entered, the ones only in the previous one exited.
+            int i = 0;
+            int j = 0;
+            while (i < previous.length || j < count) {
+                if (j == count || (i < previous.length && previous[i] < mBuffer[j])) {
+                    mListener.onExit(device, previous[i++]);
+                }
+                else if (i == previous.length || mBuffer[j] < previous[i]) {
+                    mListener.onEnter(device, mBuffer[j++]);
+                }
+                else {
+                    i++;
+                    j++;
+                }
+            }
+            if (! same(previous, mBuffer, count)) {
+                mStates[index] = (count == 0) ? NONE : Arrays.copyOf(mBuffer, count);
+            }
+        }
+
+        private static boolean same(final int[] zones, final int[] buffer, final int count) {
+            if (zones.length != count) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                if (zones[i] != buffer[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Zones the device is in, empty if unknown.
+        public int[] zones(final long device) {
+            final int index = mDevices.get(device);
+            return (index != -1) ? mStates[index].clone() : NONE;
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+package me.shkschneider.openlocationcodes;
+
+// Immutable index of reference localities (city centers, neighborhoods...) to recover short codes against, safe for concurrent readers.
+// A short code missing d digits repeats on a lattice of prefix cells (20, 1, 0.05 or 0.0025 degree for d = 2, 4, 6, 8), and recovering it
+// against a locality gives the repetition nearest to that locality. The right locality for a code on its own is thus the one
+// closest to any repetition: for each d, localities are bucketed by their position modulo the prefix cell, a torus on which
+// the lookup is a nearest neighbor search around the code's offset in its cell, in about constant time for any number of localities.
+// With a location hint (a city's center), the code is recovered against the hint and the nearest locality found with a PointIndex.
+public class LocalityIndex {
+
+    private static final int MAX_GRID = 1024;
+    // Lowest cosine of latitude used to bound longitude distances (about 89.4 degrees).
+    private static final double MIN_COSINE = 0.01;
+
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final double[] mCosines;
+    private final double mMinCosine;
+    private final PointIndex mPointIndex;
+    // Indexed by digits to recover / 2 - 1 (2 to 8 digits).
+    private final Torus[] mTori = new Torus[OpenLocationCode.SEPARATOR_POSITION / 2];
+
+    public LocalityIndex(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        // Validates the coordinates.
+        mPointIndex = new PointIndex(latitudes, longitudes);
+        if (latitudes.length == 0) {
+            throw new IllegalArgumentException("No localities");
+        }
+        mLatitudes = latitudes.clone();
+        mLongitudes = longitudes.clone();
+        mCosines = new double[latitudes.length];
+        double minCosine = 1;
+        for (int i = 0; i < latitudes.length; i++) {
+            mCosines[i] = Math.max(MIN_COSINE, Math.cos(Math.toRadians(latitudes[i])));
+            minCosine = Math.min(minCosine, mCosines[i]);
+        }
+        mMinCosine = minCosine;
+        final long[] latitudeValues = new long[latitudes.length];
+        final long[] longitudeValues = new long[latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudeValues[i] = OpenLocationCode.latitudeToInteger(latitudes[i], PlusCode.CODE_MAX_LENGTH);
+            longitudeValues[i] = OpenLocationCode.longitudeToInteger(longitudes[i]);
+        }
+        for (int i = 0; i < mTori.length; i++) {
+            mTori[i] = new Torus((i + 1) * 2, latitudeValues, longitudeValues);
+        }
+    }
+
+    public int size() {
+        return mLatitudes.length;
+    }
+
+    public double latitude(final int index) {
+        return mLatitudes[index];
+    }
+
+    public double longitude(final int index) {
+        return mLongitudes[index];
+    }
+
+    // Index of the locality nearest to the coordinates.
+    public int nearest(final double latitude, final double longitude) throws IllegalArgumentException {
+        final int[] nearest = new int[1];
+        mPointIndex.nearest(latitude, longitude, 1, new PointIndex.Visitor() {
+            @Override
+            public void onPoint(final int index, final double latitude, final double longitude) {
+                nearest[0] = index;
+            }
+        });
+        return nearest[0];
+    }
+
+    // Index of the locality closest to one of the places the short code can stand for; full codes use their center.
+    // Without a hint this is a guess: the more localities and the more digits missing, the more of them lie close to
+    // some repetition of the code (every 0.0025 degree for 8 missing digits), so prefer reference(code, hint...) when the
+    // code comes with a place name.
+    public int reference(final CharSequence code) throws IllegalArgumentException {
+        if (OpenLocationCode.classify(code) == OpenLocationCode.Classification.VALID_FULL) {
+            final OpenLocationCode.CodeArea codeArea = OpenLocationCode.decode(code.toString());
+            return nearest(codeArea.latitudeCenter, codeArea.longitudeCenter);
+        }
+        final long[] units = new long[2];
+        final int digitsToRecover = OpenLocationCode.shortCodeCenter(code, units);
+        return mTori[digitsToRecover / 2 - 1].nearest(units[0], units[1]);
+    }
+
+    // Index of the locality nearest to the code recovered against the hint.
+    public int reference(final CharSequence code, final double hintLatitude, final double hintLongitude) throws IllegalArgumentException {
+        final OpenLocationCode.CodeArea codeArea = OpenLocationCode.decode(OpenLocationCode.recover(code.toString(), hintLatitude, hintLongitude));
+        return nearest(codeArea.latitudeCenter, codeArea.longitudeCenter);
+    }
+
+    // The full code, recovered against reference(code).
+    public String resolve(final CharSequence code) throws IllegalArgumentException {
+        final int reference = reference(code);
+        return OpenLocationCode.recover(code.toString(), mLatitudes[reference], mLongitudes[reference]);
+    }
+
+    // Resolves codes[from, to) into out at outOffset, and their locality into references (if not null) at outOffset.
+    // Each locality is a guess, see reference(code).
+    public void resolveAll(final CharSequence[] codes, final int from, final int to, final String[] out, final int[] references, final int outOffset) throws IllegalArgumentException {
+        OpenLocationCode.checkBatch(codes.length, from, to, PlusCode.CODE_MAX_LENGTH, out.length, outOffset);
+        if (references != null) {
+            OpenLocationCode.checkBatch(codes.length, from, to, PlusCode.CODE_MAX_LENGTH, references.length, outOffset);
+        }
+        final CharSequence[] code = new CharSequence[1];
+        final String[] recovered = new String[1];
+        for (int i = from; i < to; i++) {
+            final int reference = reference(codes[i]);
+            code[0] = codes[i];
+            OpenLocationCode.recoverAll(code, 0, 1, mLatitudes[reference], mLongitudes[reference], recovered, 0);
+            out[outOffset + i - from] = recovered[0];
+            if (references != null) {
+                references[outOffset + i - from] = reference;
+            }
+        }
+    }
+
+    // Same, each code recovered against its hint (hintLatitudes[i], hintLongitudes[i]) like reference(code, hint...).
+    public void resolveAll(final CharSequence[] codes, final double[] hintLatitudes, final double[] hintLongitudes, final int from, final int to, final String[] out, final int[] references, final int outOffset) throws IllegalArgumentException {
+        OpenLocationCode.checkBatch(Math.min(codes.length, Math.min(hintLatitudes.length, hintLongitudes.length)), from, to, PlusCode.CODE_MAX_LENGTH, out.length, outOffset);
+        if (references != null) {
+            OpenLocationCode.checkBatch(codes.length, from, to, PlusCode.CODE_MAX_LENGTH, references.length, outOffset);
+        }
+        final CharSequence[] code = new CharSequence[1];
+        final String[] recovered = new String[1];
+        final OpenLocationCode.MutableCodeArea codeArea = new OpenLocationCode.MutableCodeArea();
+        for (int i = from; i < to; i++) {
+            code[0] = codes[i];
+            OpenLocationCode.recoverAll(code, 0, 1, hintLatitudes[i], hintLongitudes[i], recovered, 0);
+            OpenLocationCode.decodeInto(recovered[0], 0, recovered[0].length(), codeArea);
+            final int reference = nearest(codeArea.latitudeCenter, codeArea.longitudeCenter);
+            OpenLocationCode.recoverAll(code, 0, 1, mLatitudes[reference], mLongitudes[reference], recovered, 0);
+            out[outOffset + i - from] = recovered[0];
+            if (references != null) {
+                references[outOffset + i - from] = reference;
+            }
+        }
+    }
+
+    // Localities bucketed on a grid over their position modulo the prefix cell of the given number of digits.
+    private final class Torus {
+
+        private final long mHeight;
+        private final long mWidth;
+        private final int mGrid;
+        // Bucket b holds mItems[mStarts[b], mStarts[b + 1]), with the positions on the torus alongside.
+        private final int[] mStarts;
+        private final int[] mItems;
+        private final long[] mLatitudeValues;
+        private final long[] mLongitudeValues;
+        // Bucket sizes in degrees, the width at the lowest cosine.
+        private final double mBucketHeight;
+        private final double mBucketWidth;
+
+        Torus(final int digits, final long[] latitudeValues, final long[] longitudeValues) {
+            mHeight = OpenLocationCode.latitudePlaceValue(digits);
+            mWidth = OpenLocationCode.longitudePlaceValue(digits);
+            mGrid = (int) Math.max(1, Math.min(MAX_GRID, Math.sqrt(latitudeValues.length / 2.0)));
+            final int[] buckets = new int[latitudeValues.length];
+            mStarts = new int[mGrid * mGrid + 1];
+            for (int i = 0; i < latitudeValues.length; i++) {
+                buckets[i] = bucket(row(latitudeValues[i] % mHeight), column(longitudeValues[i] % mWidth));
+                mStarts[buckets[i] + 1] += 1;
+            }
+            for (int b = 0; b < mGrid * mGrid; b++) {
+                mStarts[b + 1] += mStarts[b];
+            }
+            mItems = new int[latitudeValues.length];
+            mLatitudeValues = new long[latitudeValues.length];
+            mLongitudeValues = new long[latitudeValues.length];
+            final int[] next = mStarts.clone();
+            for (int i = 0; i < latitudeValues.length; i++) {
+                final int position = next[buckets[i]]++;
+                mItems[position] = i;
+                mLatitudeValues[position] = latitudeValues[i] % mHeight;
+                mLongitudeValues[position] = longitudeValues[i] % mWidth;
+            }
+            mBucketHeight = (double) mHeight / mGrid / OpenLocationCode.LATITUDE_PRECISION;
+            mBucketWidth = (double) mWidth / mGrid / OpenLocationCode.LONGITUDE_PRECISION * mMinCosine;
+        }
+
+        // Searches rings of buckets around the offset until the next ring cannot hold anything closer.
+        int nearest(final long latitudeOffset, final long longitudeOffset) {
+            final int row = row(latitudeOffset);
+            final int column = column(longitudeOffset);
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int ring = 0; ring <= mGrid / 2; ring++) {
+                final double bound = (ring - 1) * Math.min(mBucketHeight, mBucketWidth);
+                if (best != -1 && bound > 0 && bound * bound > bestDistance) {
+                    break ;
+                }
+                for (int r = -ring; r <= ring; r++) {
+                    // Inner rows only visit the ring's two end columns.
+                    final int step = (r == -ring || r == ring) ? 1 : Math.max(1, 2 * ring);
+                    for (int c = -ring; c <= ring; c += step) {
+                        final int b = bucket(wrap(row + r), wrap(column + c));
+                        for (int i = mStarts[b]; i < mStarts[b + 1]; i++) {
+                            final double distance = distance(mItems[i], mLatitudeValues[i] - latitudeOffset, mLongitudeValues[i] - longitudeOffset);
+                            if (distance < bestDistance || (distance == bestDistance && mItems[i] < best)) {
+                                best = mItems[i];
+                                bestDistance = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        // Squared distance in degrees (longitudes scaled by the locality's cosine) to the nearest repetition.
+        private double distance(final int locality, long latitudeDelta, long longitudeDelta) {
+            latitudeDelta = wrap(latitudeDelta, mHeight);
+            longitudeDelta = wrap(longitudeDelta, mWidth);
+            final double latitude = (double) latitudeDelta / OpenLocationCode.LATITUDE_PRECISION;
+            final double longitude = (double) longitudeDelta / OpenLocationCode.LONGITUDE_PRECISION * mCosines[locality];
+            return latitude * latitude + longitude * longitude;
+        }
+
+        private long wrap(final long delta, final long period) {
+            final long wrapped = ((delta % period) + period) % period;
+            return (wrapped * 2 > period) ? wrapped - period : wrapped;
+        }
+
+        private int wrap(final int index) {
+            return (index < 0) ? index + mGrid : ((index >= mGrid) ? index - mGrid : index);
+        }
+
+        private int row(final long latitudeOffset) {
+            return (int) (latitudeOffset * mGrid / mHeight);
+        }
+
+        private int column(final long longitudeOffset) {
+            return (int) (longitudeOffset * mGrid / mWidth);
+        }
+
+        private int bucket(final int row, final int column) {
+            return row * mGrid + column;
+        }
+
+    }
+
+}
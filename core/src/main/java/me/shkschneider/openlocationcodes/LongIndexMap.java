@@ -0,0 +1,99 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Open-addressing (linear probing) map from long keys (0 included) to dense indexes 0, 1, 2... in insertion order,
+// so that callers keep their values in primitive arrays of their own, indexed alike. Not thread-safe.
+// hash() is the key mixer shared by the engine's primitive tables.
+final class LongIndexMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Keys by index.
+    private long[] mKeys;
+    // Index + 1 of the key in each slot, 0 marking free slots; load factor of 1/2.
+    private int[] mSlots;
+    private int mSize;
+
+    LongIndexMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    // Holds expectedSize keys without growing.
+    LongIndexMap(final int expectedSize) {
+        mKeys = new long[Math.max(1, expectedSize)];
+        mSlots = new int[capacity(expectedSize)];
+    }
+
+    static long hash(final long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    long key(final int index) {
+        return mKeys[index];
+    }
+
+    // Copy of the keys, by index.
+    long[] keys() {
+        return Arrays.copyOf(mKeys, mSize);
+    }
+
+    // Index of the key, or -1.
+    int get(final long key) {
+        return mSlots[slot(key)] - 1;
+    }
+
+    // Index of the key, added as the last index (size() - 1) if absent.
+    int put(final long key) {
+        final int slot = slot(key);
+        if (mSlots[slot] != 0) {
+            return mSlots[slot] - 1;
+        }
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+        }
+        mKeys[mSize] = key;
+        mSize += 1;
+        mSlots[slot] = mSize;
+        if (mSize * 2 > mSlots.length) {
+            rehash(mSlots.length * 2);
+        }
+        return mSize - 1;
+    }
+
+    void clear() {
+        Arrays.fill(mSlots, 0);
+        mSize = 0;
+    }
+
+    // Slot holding the key, or the free slot where it would go.
+    private int slot(final long key) {
+        final int mask = mSlots.length - 1;
+        int slot = (int) hash(key) & mask;
+        while (mSlots[slot] != 0 && mKeys[mSlots[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(final int capacity) {
+        mSlots = new int[capacity];
+        for (int index = 0; index < mSize; index++) {
+            mSlots[slot(mKeys[index])] = index + 1;
+        }
+    }
+
+    private static int capacity(final int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+}
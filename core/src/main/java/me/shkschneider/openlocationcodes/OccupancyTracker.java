@@ -0,0 +1,237 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Counts, per cell of a fixed code length, the vehicles (or any tracked ids) whose latest position within
+// a sliding time window falls in the cell.
+// Positions are bucketed into a ring of time slots, each a primitive map from vehicle id to packed cell and time.
+// A late position (from an older slot still within the window) goes into the current slot with its own time,
+// so that it never replaces a newer position and stops counting when its own slot leaves the window.
+// Past slots are sealed (trimmed and never written again), so expiring one is dropping a reference and
+// snapshot() reads them without locking; only the current slot is copied under the writers' lock.
+// Memory is bounded by the number of slots times the vehicles reporting within a slot.
+public class OccupancyTracker {
+
+    private final int mCodeLength;
+    private final long mSlotMillis;
+    private final int mSlots;
+    private final Object mLock = new Object();
+    // Sealed past slots, newest first, replaced (never modified) on rotation.
+    private volatile Slot[] mSealed = new Slot[0];
+    // Guarded by mLock.
+    private Slot mCurrent;
+
+    // The window spans slots * slotMillis; older positions stop counting one slot at a time.
+    public OccupancyTracker(final int codeLength, final long slotMillis, final int slots) throws IllegalArgumentException {
+        if (codeLength < 2 || codeLength > PlusCode.CODE_MAX_LENGTH || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+            throw new IllegalArgumentException("Invalid Open Location Code length: " + codeLength);
+        }
+        if (slotMillis < 1 || slots < 1) {
+            throw new IllegalArgumentException("Invalid window: " + slots + " slots of " + slotMillis + "ms");
+        }
+        mCodeLength = codeLength;
+        mSlotMillis = slotMillis;
+        mSlots = slots;
+        mCurrent = new Slot(Long.MIN_VALUE);
+    }
+
+    public int codeLength() {
+        return mCodeLength;
+    }
+
+    public long windowMillis() {
+        return mSlotMillis * mSlots;
+    }
+
+    // Positions older than the window are ignored.
+    public void record(final long vehicle, final double latitude, final double longitude, final long timeMillis) throws IllegalArgumentException {
+        final long cell = PlusCode.pack(latitude, longitude, mCodeLength);
+        final long index = slot(timeMillis);
+        synchronized (mLock) {
+            if (index > mCurrent.index) {
+                rotate(index);
+            }
+            else if (index <= mCurrent.index - mSlots) {
+                return ;
+            }
+            mCurrent.put(vehicle, cell, timeMillis);
+        }
+    }
+
+    // Occupancy over the window ending with the slot of nowMillis.
+    public Snapshot snapshot(final long nowMillis) {
+        final long index = slot(nowMillis);
+        final Slot current;
+        final Slot[] sealed;
+        synchronized (mLock) {
+            current = mCurrent.copy();
+            sealed = mSealed;
+        }
+        // Each vehicle counts in the cell of its latest position within the window, whichever slot holds it.
+        final long fromMillis = (index - mSlots + 1) * mSlotMillis;
+        final long toMillis = (index + 1) * mSlotMillis;
+        final Slot latest = new Slot(index);
+        latest.putAll(current, fromMillis, toMillis);
+        for (final Slot slot : sealed) {
+            // Slots hold no position newer than themselves.
+            if (slot.index > index - mSlots) {
+                latest.putAll(slot, fromMillis, toMillis);
+            }
+        }
+        final long[] cells = Arrays.copyOf(latest.cells, latest.size());
+        Arrays.sort(cells);
+        return new Snapshot(mCodeLength, cells);
+    }
+
+    public void clear() {
+        synchronized (mLock) {
+            mSealed = new Slot[0];
+            mCurrent = new Slot(Long.MIN_VALUE);
+        }
+    }
+
+    private long slot(final long timeMillis) {
+        final long index = timeMillis / mSlotMillis;
+        return (timeMillis < 0 && index * mSlotMillis != timeMillis) ? index - 1 : index;
+    }
+
+    // Seals the current slot and drops the ones falling out of the window.
+    private void rotate(final long index) {
+        final Slot[] sealed = mSealed;
+        int kept = 0;
+        while (kept < sealed.length && sealed[kept].index > index - mSlots) {
+            kept += 1;
+        }
+        final boolean keepCurrent = (mCurrent.size() > 0 && mCurrent.index > index - mSlots);
+        final Slot[] slots = new Slot[kept + (keepCurrent ? 1 : 0)];
+        if (keepCurrent) {
+            slots[0] = mCurrent.copy();
+        }
+        System.arraycopy(sealed, 0, slots, slots.length - kept, kept);
+        mSealed = slots;
+        mCurrent = new Slot(index);
+    }
+
+    // Packed cell and time of each vehicle's latest position, indexed alike with the vehicles.
+    private static final class Slot {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        final long index;
+        final LongIndexMap vehicles;
+        long[] cells;
+        long[] times;
+
+        Slot(final long index) {
+            this(index, INITIAL_CAPACITY);
+        }
+
+        private Slot(final long index, final int capacity) {
+            this.index = index;
+            vehicles = new LongIndexMap(capacity);
+            cells = new long[Math.max(1, capacity)];
+            times = new long[Math.max(1, capacity)];
+        }
+
+        int size() {
+            return vehicles.size();
+        }
+
+        // Keeps the vehicle's latest position (the last one recorded for equal times).
+        void put(final long vehicle, final long cell, final long time) {
+            final int size = vehicles.size();
+            final int i = vehicles.put(vehicle);
+            if (i == cells.length) {
+                cells = Arrays.copyOf(cells, i * 2);
+                times = Arrays.copyOf(times, i * 2);
+            }
+            if (i == size || time >= times[i]) {
+                cells[i] = cell;
+                times[i] = time;
+            }
+        }
+
+        // Adds the positions of other within [fromMillis, toMillis).
+        void putAll(final Slot other, final long fromMillis, final long toMillis) {
+            for (int i = 0; i < other.size(); i++) {
+                if (other.times[i] >= fromMillis && other.times[i] < toMillis) {
+                    put(other.vehicles.key(i), other.cells[i], other.times[i]);
+                }
+            }
+        }
+
+        // Trimmed copy.
+        Slot copy() {
+            final Slot slot = new Slot(index, size());
+            for (int i = 0; i < size(); i++) {
+                slot.put(vehicles.key(i), cells[i], times[i]);
+            }
+            return slot;
+        }
+
+    }
+
+    // Immutable vehicle counts per cell, sorted by packed code.
+    public static final class Snapshot {
+
+        private final int mCodeLength;
+        private final long[] mCodes;
+        private final int[] mCounts;
+        private final int mTotal;
+
+        // Run-length encodes the sorted cells of every vehicle.
+        private Snapshot(final int codeLength, final long[] cells) {
+            int size = 0;
+            for (int i = 0; i < cells.length; i++) {
+                if (i == 0 || cells[i] != cells[i - 1]) {
+                    size += 1;
+                }
+            }
+            mCodeLength = codeLength;
+            mCodes = new long[size];
+            mCounts = new int[size];
+            mTotal = cells.length;
+            int n = -1;
+            for (int i = 0; i < cells.length; i++) {
+                if (i == 0 || cells[i] != cells[i - 1]) {
+                    mCodes[++n] = cells[i];
+                }
+                mCounts[n] += 1;
+            }
+        }
+
+        public int codeLength() {
+            return mCodeLength;
+        }
+
+        public int size() {
+            return mCodes.length;
+        }
+
+        public long code(final int index) {
+            return mCodes[index];
+        }
+
+        public int count(final int index) {
+            return mCounts[index];
+        }
+
+        // Vehicles in the cell (of the tracker's length), 0 if none.
+        public int count(final long packed) {
+            final int index = Arrays.binarySearch(mCodes, packed);
+            return (index >= 0) ? mCounts[index] : 0;
+        }
+
+        // Vehicles seen within the window.
+        public int total() {
+            return mTotal;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{codeLength=" + mCodeLength + ", size=" + mCodes.length + ", total=" + mTotal + "}";
+        }
+
+    }
+
+}
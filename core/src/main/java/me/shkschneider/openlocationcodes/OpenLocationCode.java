@@ -0,0 +1,804 @@
+package me.shkschneider.openlocationcodes;
+
+// Copyright 2014 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the 'License');
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an 'AS IS' BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+import java.io.IOException;
+
+// Open Location Codes were developed at Google's Zurich engineering office, and then open sourced so that they can be freely used.
+// The main author is Doug Rinckes (@drinckes), with the help of lots of colleagues including:
+// Philipp Bunge, Aner Ben-Artzi, Jarda Bengl, Prasenit Phukan, Sacha van Ginhoven and Zongwei Li
+//
+// http://openlocationcode.com
+//
+// Java port by ShkSchneider <https://shkschneider.me>
+// From <https://github.com/google/open-location-code>
+//
+// Plain Java engine, free of Android and Play Services types; OpenLocationCodes adapts it to LatLng on Android.
+public class OpenLocationCode {
+
+    public static final int CODE_DEFAULT_LENGTH = 11;
+
+    static final char SEPARATOR = '+';
+    static final int SEPARATOR_POSITION = 8;
+    static final char PADDING_CHARACTER = '0';
+    private static final String CODE_ALPHABET = "23456789CFGHJMPQRVWX";
+    static final int ENCODING_BASE = CODE_ALPHABET.length();
+    static final int LATITUDE_MAX = 90;
+    static final int LONGITUDE_MAX = 180;
+    static final int PAIR_CODE_LENGTH = 10;
+    private static final int CODE_MIN_LENGTH = SEPARATOR_POSITION;
+    static final int CODE_MAX_LENGTH = 11;
+    static final int GRID_CODE_LENGTH = 5;
+    static final int GRID_COLUMNS = 4;
+    static final int GRID_ROWS = 5;
+    // Mean radius of the Earth in meters (IUGG).
+    static final double EARTH_RADIUS = 6371008.8;
+    private static final int CODE_BUFFER_LENGTH = PAIR_CODE_LENGTH + GRID_CODE_LENGTH + 1;
+    // Integer units per degree, so that the smallest grid cell is exactly one unit high and wide.
+    static final long LATITUDE_PRECISION = 8000L * 3125L;
+    static final long LONGITUDE_PRECISION = 8000L * 1024L;
+    // Place values in integer units: five pair steps (20, 1, 1/20, 1/400, 1/8000 degree) then five grid steps.
+    private static final long[] LATITUDE_PLACE_VALUES = {
+            20 * LATITUDE_PRECISION, LATITUDE_PRECISION, LATITUDE_PRECISION / 20, LATITUDE_PRECISION / 400, LATITUDE_PRECISION / 8000,
+            625, 125, 25, 5, 1
+    };
+    private static final long[] LONGITUDE_PLACE_VALUES = {
+            20 * LONGITUDE_PRECISION, LONGITUDE_PRECISION, LONGITUDE_PRECISION / 20, LONGITUDE_PRECISION / 400, LONGITUDE_PRECISION / 8000,
+            256, 64, 16, 4, 1
+    };
+    private static final char[] ALPHABET = CODE_ALPHABET.toCharArray();
+    // Digit values indexed by character, -1 for characters outside the alphabet (either case).
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        for (int c = 0; c < DIGITS.length; c++) {
+            DIGITS[c] = (byte) CODE_ALPHABET.indexOf(Character.toUpperCase((char) c));
+        }
+    }
+
+    // Scratch space so that encoding and decoding do not allocate intermediate objects.
+    private static final ThreadLocal<char[]> ENCODE_BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[CODE_BUFFER_LENGTH];
+        }
+    };
+    private static final ThreadLocal<CodeArea> DECODE_AREA = new ThreadLocal<CodeArea>() {
+        @Override
+        protected CodeArea initialValue() {
+            return new CodeArea();
+        }
+    };
+
+    // Checks
+
+    public static Classification classify(final CharSequence code) {
+        if (code == null) {
+            return Classification.INVALID_LENGTH;
+        }
+        return classify(code, 0, code.length());
+    }
+
+    // Single pass over code[offset, offset + length), in either case.
+    public static Classification classify(final CharSequence code, final int offset, final int length) {
+        if (length < 2) {
+            return Classification.INVALID_LENGTH;
+        }
+        int separator = -1;
+        int padding = -1;
+        int firstLatitudeValue = 0;
+        int firstLongitudeValue = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = code.charAt(offset + i);
+            if (c == SEPARATOR) {
+                // There must be exactly one separator.
+                if (separator != -1) {
+                    return Classification.INVALID_SEPARATOR;
+                }
+                separator = i;
+                continue ;
+            }
+            if (c == PADDING_CHARACTER) {
+                // Padding starts on a pair boundary after the first pair, and only before the separator.
+                if (separator != -1 || (padding == -1 && (i == 0 || (i % 2) != 0))) {
+                    return Classification.INVALID_PADDING;
+                }
+                if (padding == -1) {
+                    padding = i;
+                }
+                continue ;
+            }
+            final int value = digitValue(c);
+            if (value == -1) {
+                return Classification.INVALID_CHARACTER;
+            }
+            // No digits after padding.
+            if (padding != -1) {
+                return Classification.INVALID_PADDING;
+            }
+            if (i == 0) {
+                firstLatitudeValue = value;
+            }
+            else if (i == 1) {
+                firstLongitudeValue = value;
+            }
+        }
+        // Short codes may drop any even number of leading digits, down to none at all ("+2VX").
+        if (separator == -1 || separator > SEPARATOR_POSITION || (separator % 2) != 0) {
+            return Classification.INVALID_SEPARATOR;
+        }
+        // A single character after the separator is not allowed.
+        if (length - separator == 2) {
+            return Classification.INVALID_LENGTH;
+        }
+        // Padded codes are full and end with the separator.
+        if (padding != -1 && (separator < SEPARATOR_POSITION || separator != length - 1)) {
+            return Classification.INVALID_PADDING;
+        }
+        if (separator < SEPARATOR_POSITION) {
+            return Classification.VALID_SHORT;
+        }
+        // The code would decode to a latitude of >= 90 degrees or a longitude of >= 180 degrees.
+        if (firstLatitudeValue * ENCODING_BASE >= LATITUDE_MAX * 2 || firstLongitudeValue * ENCODING_BASE >= LONGITUDE_MAX * 2) {
+            return Classification.INVALID_RANGE;
+        }
+        return Classification.VALID_FULL;
+    }
+
+    private static boolean isValid(final String code) {
+        return classify(code).isValid();
+    }
+
+    private static boolean isFull(final String code) {
+        return (classify(code) == Classification.VALID_FULL);
+    }
+
+    public static boolean isPadded(final String code) {
+        return (code.indexOf(PADDING_CHARACTER) != -1);
+    }
+
+    public static boolean contains(final String code, final double latitude, final double longitude) {
+        if (! isFull(code)) {
+            return false;
+        }
+        return decode(code).contains(latitude, longitude);
+    }
+
+    // Encode
+
+    public static String encode(final double latitude, final double longitude) {
+        return encode(latitude, longitude, CODE_MAX_LENGTH);
+    }
+
+    public static String encode(final double latitude, final double longitude, final int codeLength) throws IllegalArgumentException {
+        final char[] buffer = ENCODE_BUFFER.get();
+        return new String(buffer, 0, encode(latitude, longitude, codeLength, buffer, 0));
+    }
+
+    public static int encode(final double latitude, final double longitude, final int codeLength, final StringBuilder stringBuilder) throws IllegalArgumentException {
+        final char[] buffer = ENCODE_BUFFER.get();
+        final int length = encode(latitude, longitude, codeLength, buffer, 0);
+        stringBuilder.append(buffer, 0, length);
+        return length;
+    }
+
+    public static int encode(final double latitude, final double longitude, final int codeLength, final Appendable appendable) throws IllegalArgumentException, IOException {
+        final char[] buffer = ENCODE_BUFFER.get();
+        final int length = encode(latitude, longitude, codeLength, buffer, 0);
+        for (int i = 0; i < length; i++) {
+            appendable.append(buffer[i]);
+        }
+        return length;
+    }
+
+    // Writes the code into buffer at offset and returns the number of characters written.
+    public static int encode(final double latitude, final double longitude, final int codeLength, final char[] buffer, final int offset) throws IllegalArgumentException {
+        final int length = encodedLength(codeLength);
+        if (offset < 0 || buffer.length - offset < length) {
+            throw new IllegalArgumentException("Buffer too small for Open Location Code length: " + codeLength);
+        }
+        return encodeDigits(latitudeToInteger(latitude, codeLength), longitudeToInteger(longitude), codeLength, buffer, offset) - offset;
+    }
+
+    // Writes codes for latitudes[from, to) and longitudes[from, to) into out[0, to - from) as packed values.
+    public static void encodeBatch(final double[] latitudes, final double[] longitudes, final int from, final int to, final int codeLength, final long[] out) throws IllegalArgumentException {
+        encodeBatch(latitudes, longitudes, from, to, codeLength, out, 0);
+    }
+
+    public static void encodeBatch(final double[] latitudes, final double[] longitudes, final int from, final int to, final int codeLength, final long[] out, final int outOffset) throws IllegalArgumentException {
+        checkBatch(latitudes.length, from, to, codeLength, out.length, outOffset);
+        checkBatch(longitudes.length, from, to, codeLength, out.length, outOffset);
+        if (codeLength > PlusCode.CODE_MAX_LENGTH) {
+            throw new IllegalArgumentException("Open Location Code length too long to pack: " + codeLength);
+        }
+        for (int i = from; i < to; i++) {
+            out[outOffset + i - from] = PlusCode.pack(latitudeToInteger(latitudes[i], codeLength), longitudeToInteger(longitudes[i]), codeLength);
+        }
+    }
+
+    // Writes codes for latitudes[from, to) and longitudes[from, to) into out as consecutive fixed-width records of encodedLength(codeLength) characters.
+    public static void encodeBatch(final double[] latitudes, final double[] longitudes, final int from, final int to, final int codeLength, final char[] out) throws IllegalArgumentException {
+        encodeBatch(latitudes, longitudes, from, to, codeLength, out, 0);
+    }
+
+    // Same, starting at record outOffset (not character) of out.
+    public static void encodeBatch(final double[] latitudes, final double[] longitudes, final int from, final int to, final int codeLength, final char[] out, final int outOffset) throws IllegalArgumentException {
+        final int length = encodedLength(codeLength);
+        checkBatch(latitudes.length, from, to, codeLength, out.length / length, outOffset);
+        checkBatch(longitudes.length, from, to, codeLength, out.length / length, outOffset);
+        for (int i = from; i < to; i++) {
+            encodeDigits(latitudeToInteger(latitudes[i], codeLength), longitudeToInteger(longitudes[i]), codeLength, out, (outOffset + i - from) * length);
+        }
+    }
+
+    static void checkBatch(final int inLength, final int from, final int to, final int codeLength, final int outLength, final int outOffset) throws IllegalArgumentException {
+        encodedLength(codeLength);
+        if (from < 0 || from > to || to > inLength) {
+            throw new IllegalArgumentException("Invalid batch range: " + from + "-" + to);
+        }
+        if (outOffset < 0 || outLength - outOffset < to - from) {
+            throw new IllegalArgumentException("Output too small for " + (to - from) + " codes");
+        }
+    }
+
+    // Writes the digits, padding and separator for integer coordinates and returns the position after the code.
+    private static int encodeDigits(final long latitudeValue, final long longitudeValue, final int codeLength, final char[] buffer, int position) {
+        for (int digit = 0; digit < Math.max(codeLength, SEPARATOR_POSITION); digit++) {
+            if (digit == SEPARATOR_POSITION) {
+                buffer[position++] = SEPARATOR;
+            }
+            buffer[position++] = (digit < codeLength) ? ALPHABET[digitAt(latitudeValue, longitudeValue, digit)] : PADDING_CHARACTER;
+        }
+        if (codeLength <= SEPARATOR_POSITION) {
+            buffer[position++] = SEPARATOR;
+        }
+        return position;
+    }
+
+    // Number of characters (digits, padding and separator) in a code of the given length.
+    public static int encodedLength(final int codeLength) throws IllegalArgumentException {
+        if (codeLength < 4 || (codeLength < 10 && (codeLength % 2) == 1) || codeLength > CODE_BUFFER_LENGTH - 1) {
+            throw new IllegalArgumentException("Invalid Open Location Code length");
+        }
+        return Math.max(codeLength, SEPARATOR_POSITION) + 1;
+    }
+
+    private static double clipLatitude(final double latitude) {
+        return Math.min(90, Math.max(-90, latitude));
+    }
+
+    private static double computeLatitudePrecision(final int codeLength) {
+        if (codeLength <= 10) {
+            return Math.pow(20, Math.floor(codeLength / -2 + 2));
+        }
+        return Math.pow(20, -3) / Math.pow(GRID_ROWS, codeLength - 10);
+    }
+
+    static double normalizeLongitude(double longitude) {
+        while (longitude < -180) {
+            longitude = longitude + 360;
+        }
+        while (longitude >= 180) {
+            longitude = longitude - 360;
+        }
+        return longitude;
+    }
+
+    // Latitude as a positive number of integer units, clipped to the range that encodes.
+    static long latitudeToInteger(double latitude, final int codeLength) {
+        latitude = clipLatitude(latitude);
+        // Latitude 90 needs to be adjusted to be just less, so the returned code can also be decoded.
+        if (latitude == LATITUDE_MAX) {
+            latitude = latitude - 0.9 * computeLatitudePrecision(codeLength);
+        }
+        // Rounding to a millionth of a unit absorbs floating point representation errors before truncating.
+        return (long) (Math.round((latitude + LATITUDE_MAX) * LATITUDE_PRECISION * 1e6) / 1e6);
+    }
+
+    // Longitude as a positive number of integer units, normalized into [0, 360) degrees.
+    static long longitudeToInteger(final double longitude) {
+        final long longitudeValue = (long) (Math.round((normalizeLongitude(longitude) + LONGITUDE_MAX) * LONGITUDE_PRECISION * 1e6) / 1e6);
+        return (longitudeValue < LONGITUDE_MAX * 2 * LONGITUDE_PRECISION) ? longitudeValue : longitudeValue - LONGITUDE_MAX * 2 * LONGITUDE_PRECISION;
+    }
+
+    // Index of the cell of the given length containing the coordinates, unique across code lengths up to CODE_MAX_LENGTH.
+    static long cellIndex(final double latitude, final double longitude, final int codeLength) {
+        final int place = placeIndex(codeLength - 1);
+        final long latitudeCell = latitudeToInteger(latitude, codeLength) / LATITUDE_PLACE_VALUES[place];
+        final long longitudeCell = longitudeToInteger(longitude) / LONGITUDE_PLACE_VALUES[place];
+        final long longitudeCells = LONGITUDE_MAX * 2 * LONGITUDE_PRECISION / LONGITUDE_PLACE_VALUES[place];
+        return (latitudeCell * longitudeCells + longitudeCell) * (CODE_MAX_LENGTH + 1) + codeLength;
+    }
+
+    // Height of a cell of the given length in integer units.
+    static long latitudePlaceValue(final int codeLength) {
+        return LATITUDE_PLACE_VALUES[placeIndex(codeLength - 1)];
+    }
+
+    // Width of a cell of the given length in integer units.
+    static long longitudePlaceValue(final int codeLength) {
+        return LONGITUDE_PLACE_VALUES[placeIndex(codeLength - 1)];
+    }
+
+    // Index into the place value tables for the given digit (0-based, separator and padding excluded).
+    private static int placeIndex(final int digit) {
+        return (digit < PAIR_CODE_LENGTH) ? digit / 2 : digit - PAIR_CODE_LENGTH / 2;
+    }
+
+    // Value (0-19) of the given digit of the code for integer coordinates.
+    static int digitAt(final long latitudeValue, final long longitudeValue, final int digit) {
+        final int place = placeIndex(digit);
+        if (digit < PAIR_CODE_LENGTH) {
+            if ((digit % 2) == 0) {
+                return (int) ((latitudeValue / LATITUDE_PLACE_VALUES[place]) % ENCODING_BASE);
+            }
+            return (int) ((longitudeValue / LONGITUDE_PLACE_VALUES[place]) % ENCODING_BASE);
+        }
+        final int row = (int) ((latitudeValue / LATITUDE_PLACE_VALUES[place]) % GRID_ROWS);
+        final int col = (int) ((longitudeValue / LONGITUDE_PLACE_VALUES[place]) % GRID_COLUMNS);
+        return row * GRID_COLUMNS + col;
+    }
+
+    // Decode
+
+    public static CodeArea decode(final String code) throws IllegalArgumentException {
+        final CodeArea codeArea = new CodeArea();
+        if (code == null || ! decode(code, 0, code.length(), codeArea)) {
+            throw new IllegalArgumentException("Passed Open Location Code is not a valid full code (" + classify(code) + "): " + code);
+        }
+        return codeArea;
+    }
+
+    // Decodes code[offset, offset + length) into out, returning false (and leaving out untouched) if it is not a valid full code.
+    public static boolean decodeInto(final CharSequence code, final int offset, final int length, final MutableCodeArea out) {
+        return decode(code, offset, length, out);
+    }
+
+    // Same, into row index of out.
+    public static boolean decodeInto(final CharSequence code, final int offset, final int length, final CodeAreaBuffer out, final int index) {
+        final CodeArea codeArea = DECODE_AREA.get();
+        if (! decode(code, offset, length, codeArea)) {
+            return false;
+        }
+        out.set(index, codeArea);
+        return true;
+    }
+
+    private static boolean decode(final CharSequence code, final int offset, final int length, final CodeArea out) {
+        if (classify(code, offset, length) != Classification.VALID_FULL) {
+            return false;
+        }
+        // Accumulate the digits in integer units, skipping the separator and padding characters.
+        long latitudeValue = -LATITUDE_MAX * LATITUDE_PRECISION;
+        long longitudeValue = -LONGITUDE_MAX * LONGITUDE_PRECISION;
+        int digits = 0;
+        for (int i = 0; i < length && digits < PAIR_CODE_LENGTH + GRID_CODE_LENGTH; i++) {
+            final char c = code.charAt(offset + i);
+            if (c == SEPARATOR || c == PADDING_CHARACTER) {
+                continue ;
+            }
+            final int value = digitValue(c);
+            latitudeValue += latitudeUnits(digits, value);
+            longitudeValue += longitudeUnits(digits, value);
+            digits += 1;
+        }
+        setArea(out, latitudeValue, longitudeValue, digits);
+        return true;
+    }
+
+    // Writes the centers of the packed full codes[from, to) into latitudes and longitudes at outOffset.
+    public static void decodeBatch(final long[] codes, final int from, final int to, final double[] latitudes, final double[] longitudes, final int outOffset) throws IllegalArgumentException {
+        checkBatch(codes.length, from, to, CODE_MAX_LENGTH, Math.min(latitudes.length, longitudes.length), outOffset);
+        for (int i = from; i < to; i++) {
+            final long packed = codes[i];
+            if (PlusCode.isShort(packed)) {
+                throw new IllegalArgumentException("Cannot decode short Open Location Code: " + PlusCode.unpack(packed));
+            }
+            final int place = placeIndex(PlusCode.codeLength(packed) - 1);
+            final long latitudeValue = PlusCode.latitudeValue(packed);
+            final long longitudeValue = PlusCode.longitudeValue(packed);
+            latitudes[outOffset + i - from] = center(latitudeValue, latitudeValue + LATITUDE_PLACE_VALUES[place], LATITUDE_PRECISION, LATITUDE_MAX);
+            longitudes[outOffset + i - from] = center(longitudeValue, longitudeValue + LONGITUDE_PLACE_VALUES[place], LONGITUDE_PRECISION, LONGITUDE_MAX);
+        }
+    }
+
+    // Writes the areas of the packed full codes[from, to) into out at outOffset.
+    public static void decodeBatch(final long[] codes, final int from, final int to, final CodeAreaBuffer out, final int outOffset) throws IllegalArgumentException {
+        checkBatch(codes.length, from, to, CODE_MAX_LENGTH, out.capacity(), outOffset);
+        final CodeArea codeArea = DECODE_AREA.get();
+        for (int i = from; i < to; i++) {
+            final long packed = codes[i];
+            if (PlusCode.isShort(packed)) {
+                throw new IllegalArgumentException("Cannot decode short Open Location Code: " + PlusCode.unpack(packed));
+            }
+            setArea(codeArea, PlusCode.latitudeValue(packed), PlusCode.longitudeValue(packed), PlusCode.codeLength(packed));
+            out.set(outOffset + i - from, codeArea);
+        }
+    }
+
+    // Same as CodeArea's center, from integer bounds.
+    private static double center(final long lo, final long hi, final long precision, final int max) {
+        final double low = (double) lo / precision;
+        return Math.min(low + ((double) hi / precision - low) / 2, max);
+    }
+
+    // Integer units the given digit (0-based) with the given value adds to the latitude.
+    static long latitudeUnits(final int digit, final int value) {
+        if (digit >= PAIR_CODE_LENGTH) {
+            return (value / GRID_COLUMNS) * LATITUDE_PLACE_VALUES[placeIndex(digit)];
+        }
+        return ((digit % 2) == 0) ? value * LATITUDE_PLACE_VALUES[placeIndex(digit)] : 0;
+    }
+
+    // Integer units the given digit (0-based) with the given value adds to the longitude.
+    static long longitudeUnits(final int digit, final int value) {
+        if (digit >= PAIR_CODE_LENGTH) {
+            return (value % GRID_COLUMNS) * LONGITUDE_PLACE_VALUES[placeIndex(digit)];
+        }
+        return ((digit % 2) == 1) ? value * LONGITUDE_PLACE_VALUES[placeIndex(digit)] : 0;
+    }
+
+    // Area of the given number of digits whose south-west corner is at the given integer coordinates.
+    static CodeArea codeArea(final long latitudeValue, final long longitudeValue, final int digits) {
+        final CodeArea codeArea = new CodeArea();
+        setArea(codeArea, latitudeValue, longitudeValue, digits);
+        return codeArea;
+    }
+
+    static void setArea(final CodeArea codeArea, final long latitudeValue, final long longitudeValue, final int digits) {
+        // The size of the area is the place value of the last digit.
+        final int place = placeIndex(digits - 1);
+        codeArea.set((double) latitudeValue / LATITUDE_PRECISION,
+                (double) longitudeValue / LONGITUDE_PRECISION,
+                (double) (latitudeValue + LATITUDE_PLACE_VALUES[place]) / LATITUDE_PRECISION,
+                (double) (longitudeValue + LONGITUDE_PLACE_VALUES[place]) / LONGITUDE_PRECISION,
+                digits);
+    }
+
+    // Value (0-19) of the given character, or -1 if it is not part of the alphabet.
+    static int digitValue(final char c) {
+        return (c < DIGITS.length) ? DIGITS[c] : -1;
+    }
+
+    static char digitChar(final int value) {
+        return ALPHABET[value];
+    }
+
+    // Shorten
+
+    // Removes the first 8, 6, 4 or 2 digits of a full code, as many as can be recovered from the reference location.
+    public static String shorten(final String code, final double latitude, final double longitude) throws IllegalArgumentException {
+        if (code == null || ! isFull(code)) {
+            throw new IllegalArgumentException("Passed code is not valid and full: " + code);
+        }
+        if (isPadded(code)) {
+            throw new IllegalArgumentException("Cannot shorten padded codes: " + code);
+        }
+        final long[] units = new long[2];
+        final int digits = decodeUnits(code, 0, code.length(), 0, units);
+        final int removed = shortenDigits(units, digits, latitudeToInteger(latitude, CODE_MAX_LENGTH), longitudeToInteger(longitude));
+        if (removed == 0) {
+            throw new IllegalArgumentException("Reference location is too far from the Open Location Code center.");
+        }
+        return code.substring(removed);
+    }
+
+    // Shortens codes[from, to) against a single reference into out at outOffset; codes too far from it are copied as is.
+    public static void shortenAll(final CharSequence[] codes, final int from, final int to, final double referenceLatitude, final double referenceLongitude, final String[] out, final int outOffset) throws IllegalArgumentException {
+        checkBatch(codes.length, from, to, CODE_MAX_LENGTH, out.length, outOffset);
+        final long referenceLatitudeValue = latitudeToInteger(referenceLatitude, CODE_MAX_LENGTH);
+        final long referenceLongitudeValue = longitudeToInteger(referenceLongitude);
+        final long[] units = new long[2];
+        for (int i = from; i < to; i++) {
+            final CharSequence code = codes[i];
+            if (code == null || classify(code, 0, code.length()) != Classification.VALID_FULL) {
+                throw new IllegalArgumentException("Passed code is not valid and full: " + code);
+            }
+            final int digits = decodeUnits(code, 0, code.length(), 0, units);
+            // Padding characters are skipped, leaving fewer digits than the separator position.
+            if (digits < SEPARATOR_POSITION) {
+                throw new IllegalArgumentException("Cannot shorten padded codes: " + code);
+            }
+            final int removed = shortenDigits(units, digits, referenceLatitudeValue, referenceLongitudeValue);
+            out[outOffset + i - from] = code.subSequence(removed, code.length()).toString();
+        }
+    }
+
+    // Same over packed full codes, writing packed short codes (or the full code when too far from the reference).
+    public static void shortenAll(final long[] codes, final int from, final int to, final double referenceLatitude, final double referenceLongitude, final long[] out, final int outOffset) throws IllegalArgumentException {
+        checkBatch(codes.length, from, to, CODE_MAX_LENGTH, out.length, outOffset);
+        final long referenceLatitudeValue = latitudeToInteger(referenceLatitude, CODE_MAX_LENGTH);
+        final long referenceLongitudeValue = longitudeToInteger(referenceLongitude);
+        final long[] units = new long[2];
+        for (int i = from; i < to; i++) {
+            final long packed = codes[i];
+            if (PlusCode.isShort(packed) || ! PlusCode.isValid(packed) || PlusCode.isPadded(packed)) {
+                throw new IllegalArgumentException("Passed value is not a packed unpadded full Open Location Code: " + packed);
+            }
+            units[0] = PlusCode.latitudeValue(packed) + LATITUDE_MAX * LATITUDE_PRECISION;
+            units[1] = PlusCode.longitudeValue(packed) + LONGITUDE_MAX * LONGITUDE_PRECISION;
+            final int removed = shortenDigits(units, PlusCode.codeLength(packed), referenceLatitudeValue, referenceLongitudeValue);
+            out[outOffset + i - from] = (removed == 0) ? packed : PlusCode.shorten(packed, removed);
+        }
+    }
+
+    // Number of leading digits (8, 6, 4 or 2) that can be removed from the code of the given south-west corner (in positive units),
+    // or 0: the reference must be within 0.3 of the removed prefix's resolution from the center (0.5 would be the limit).
+    // Pair resolutions are the same in degrees of latitude and longitude.
+    // At least one digit stays, so that codes of 8 digits lose at most 6.
+    private static int shortenDigits(final long[] units, final int digits, final long referenceLatitudeValue, final long referenceLongitudeValue) {
+        // Doubled distances from the center, so that halves stay integers.
+        final long latitudeRange = Math.abs(2 * units[0] + latitudePlaceValue(digits) - 2 * referenceLatitudeValue);
+        final long longitudeRange = Math.abs(2 * units[1] + longitudePlaceValue(digits) - 2 * referenceLongitudeValue);
+        for (int removed = Math.min(SEPARATOR_POSITION, digits - 2); removed >= 2; removed -= 2) {
+            if (latitudeRange * 10 < 2 * 3 * latitudePlaceValue(removed) && longitudeRange * 10 < 2 * 3 * longitudePlaceValue(removed)) {
+                return removed;
+            }
+        }
+        return 0;
+    }
+
+    // Recover (from shorten)
+
+    // The recovered code has as many digits as the short code (recovered ones included).
+    public static String recover(final String shortCode, final double referenceLatitude, final double referenceLongitude) throws IllegalArgumentException {
+        return recover(shortCode, referenceLatitude, referenceLongitude, 0);
+    }
+
+    // A codeLength of 0 keeps the length of the short code.
+    public static String recover(final String shortCode, final double referenceLatitude, final double referenceLongitude, final int codeLength) throws IllegalArgumentException {
+        final String[] out = new String[1];
+        recoverAll(new CharSequence[] { shortCode }, 0, 1, referenceLatitude, referenceLongitude, codeLength, out, 0);
+        return out[0];
+    }
+
+    // Recovers shortCodes[from, to) against a single reference into out at outOffset, keeping their length; full codes are copied in upper case.
+    public static void recoverAll(final CharSequence[] shortCodes, final int from, final int to, final double referenceLatitude, final double referenceLongitude, final String[] out, final int outOffset) throws IllegalArgumentException {
+        recoverAll(shortCodes, from, to, referenceLatitude, referenceLongitude, 0, out, outOffset);
+    }
+
+    // Same, encoding the recovered areas at codeLength (0 to keep the length of each short code).
+    public static void recoverAll(final CharSequence[] shortCodes, final int from, final int to, final double referenceLatitude, final double referenceLongitude, final int codeLength, final String[] out, final int outOffset) throws IllegalArgumentException {
+        checkBatch(shortCodes.length, from, to, CODE_MAX_LENGTH, out.length, outOffset);
+        if (codeLength != 0) {
+            encodedLength(codeLength);
+        }
+        final long[] reference = reference(referenceLatitude, referenceLongitude);
+        final long[] units = new long[2];
+        final char[] buffer = ENCODE_BUFFER.get();
+        for (int i = from; i < to; i++) {
+            final CharSequence shortCode = shortCodes[i];
+            final Classification classification = (shortCode != null) ? classify(shortCode, 0, shortCode.length()) : Classification.INVALID_LENGTH;
+            if (classification == Classification.VALID_FULL) {
+                out[outOffset + i - from] = shortCode.toString().toUpperCase();
+                continue ;
+            }
+            if (classification != Classification.VALID_SHORT) {
+                throw new IllegalArgumentException("Passed short code is not valid (" + classification + "): " + shortCode);
+            }
+            int separator = 0;
+            while (shortCode.charAt(separator) != SEPARATOR) {
+                separator += 1;
+            }
+            final int digitsToRecover = SEPARATOR_POSITION - separator;
+            final int digits = decodeUnits(shortCode, 0, shortCode.length(), digitsToRecover, units);
+            recoverUnits(units, digitsToRecover, digits, reference);
+            final int length = (codeLength != 0) ? codeLength : digits;
+            // The center, so that longer codes land in the middle of the area like encode() of a decoded center would.
+            final int end = encodeDigits(units[0] + latitudePlaceValue(digits) / 2, units[1] + longitudePlaceValue(digits) / 2, length, buffer, 0);
+            out[outOffset + i - from] = new String(buffer, 0, end);
+        }
+    }
+
+    // Same over packed codes, writing packed full codes of the same length; full codes are copied as is.
+    public static void recoverAll(final long[] shortCodes, final int from, final int to, final double referenceLatitude, final double referenceLongitude, final long[] out, final int outOffset) throws IllegalArgumentException {
+        checkBatch(shortCodes.length, from, to, CODE_MAX_LENGTH, out.length, outOffset);
+        final long[] reference = reference(referenceLatitude, referenceLongitude);
+        final long[] units = new long[2];
+        for (int i = from; i < to; i++) {
+            final long packed = shortCodes[i];
+            if (! PlusCode.isValid(packed)) {
+                throw new IllegalArgumentException("Passed value is not a packed Open Location Code: " + packed);
+            }
+            if (! PlusCode.isShort(packed)) {
+                out[outOffset + i - from] = packed;
+                continue ;
+            }
+            final int digitsToRecover = PlusCode.firstDigit(packed);
+            final int digits = PlusCode.codeLength(packed);
+            units[0] = 0;
+            units[1] = 0;
+            for (int digit = digitsToRecover; digit < digits; digit++) {
+                units[0] += latitudeUnits(digit, PlusCode.digitValue(packed, digit));
+                units[1] += longitudeUnits(digit, PlusCode.digitValue(packed, digit));
+            }
+            recoverUnits(units, digitsToRecover, digits, reference);
+            out[outOffset + i - from] = PlusCode.pack(units[0], units[1], digits);
+        }
+    }
+
+    // Center of the digits of a short code after the ones to recover, in positive units from the south-west corner of
+    // its prefix cell, into units; returns the number of digits to recover.
+    static int shortCodeCenter(final CharSequence shortCode, final long[] units) throws IllegalArgumentException {
+        final Classification classification = classify(shortCode);
+        if (classification != Classification.VALID_SHORT) {
+            throw new IllegalArgumentException("Passed short code is not valid (" + classification + "): " + shortCode);
+        }
+        int separator = 0;
+        while (shortCode.charAt(separator) != SEPARATOR) {
+            separator += 1;
+        }
+        final int digitsToRecover = SEPARATOR_POSITION - separator;
+        final int digits = decodeUnits(shortCode, 0, shortCode.length(), digitsToRecover, units);
+        units[0] += latitudePlaceValue(digits) / 2;
+        units[1] += longitudePlaceValue(digits) / 2;
+        return digitsToRecover;
+    }
+
+    // Reference location in positive units, followed by the south-west corner of its 2, 4, 6 and 8 digit cells
+    // (latitude at index digits, longitude at digits + 1), computed once per reference.
+    private static long[] reference(final double latitude, final double longitude) {
+        final long[] reference = new long[SEPARATOR_POSITION + 2];
+        reference[0] = latitudeToInteger(latitude, CODE_MAX_LENGTH);
+        reference[1] = longitudeToInteger(longitude);
+        for (int digits = 2; digits <= SEPARATOR_POSITION; digits += 2) {
+            reference[digits] = reference[0] - reference[0] % latitudePlaceValue(digits);
+            reference[digits + 1] = reference[1] - reference[1] % longitudePlaceValue(digits);
+        }
+        return reference;
+    }
+
+    // Turns the units of the digits after the first digitsToRecover (in place) into the south-west corner of the
+    // full code nearest to the reference: the reference's prefix, moved by one prefix cell when the area's center
+    // is more than half a prefix cell away (unless that leaves the valid latitudes), longitudes wrapping around.
+    private static void recoverUnits(final long[] units, final int digitsToRecover, final int digits, final long[] reference) {
+        final long latitudeResolution = latitudePlaceValue(digitsToRecover);
+        final long longitudeResolution = longitudePlaceValue(digitsToRecover);
+        long latitudeValue = reference[digitsToRecover] + units[0];
+        long longitudeValue = reference[digitsToRecover + 1] + units[1];
+        // Doubled centers, so that halves stay integers.
+        final long latitudeCenter = 2 * latitudeValue + latitudePlaceValue(digits);
+        final long longitudeCenter = 2 * longitudeValue + longitudePlaceValue(digits);
+        if (latitudeCenter - 2 * reference[0] > latitudeResolution && latitudeCenter - 2 * latitudeResolution >= 0) {
+            latitudeValue -= latitudeResolution;
+        }
+        else if (2 * reference[0] - latitudeCenter > latitudeResolution && latitudeCenter + 2 * latitudeResolution <= 2 * 2 * LATITUDE_MAX * LATITUDE_PRECISION) {
+            latitudeValue += latitudeResolution;
+        }
+        if (longitudeCenter - 2 * reference[1] > longitudeResolution) {
+            longitudeValue -= longitudeResolution;
+        }
+        else if (2 * reference[1] - longitudeCenter > longitudeResolution) {
+            longitudeValue += longitudeResolution;
+        }
+        if (longitudeValue < 0) {
+            longitudeValue += LONGITUDE_MAX * 2 * LONGITUDE_PRECISION;
+        }
+        else if (longitudeValue >= LONGITUDE_MAX * 2 * LONGITUDE_PRECISION) {
+            longitudeValue -= LONGITUDE_MAX * 2 * LONGITUDE_PRECISION;
+        }
+        units[0] = latitudeValue;
+        units[1] = longitudeValue;
+    }
+
+    // Accumulates the digits of an already classified code in positive units into units, the first one being
+    // digit firstDigit, and returns the number of digits (up to 15, counting firstDigit).
+    private static int decodeUnits(final CharSequence code, final int offset, final int length, final int firstDigit, final long[] units) {
+        long latitudeValue = 0;
+        long longitudeValue = 0;
+        int digits = firstDigit;
+        for (int i = 0; i < length && digits < PAIR_CODE_LENGTH + GRID_CODE_LENGTH; i++) {
+            final char c = code.charAt(offset + i);
+            if (c == SEPARATOR || c == PADDING_CHARACTER) {
+                continue ;
+            }
+            final int value = digitValue(c);
+            latitudeValue += latitudeUnits(digits, value);
+            longitudeValue += longitudeUnits(digits, value);
+            digits += 1;
+        }
+        units[0] = latitudeValue;
+        units[1] = longitudeValue;
+        return digits;
+    }
+
+    // Distance
+
+    // Average of the northern edge and the diagonal of the area, in meters.
+    public static float distance(final CodeArea codeArea) {
+        final double distance1 = distance(codeArea.latitudeHi, codeArea.longitudeLo, codeArea.latitudeHi, codeArea.longitudeHi);
+        final double distance2 = distance(codeArea.latitudeHi, codeArea.longitudeLo, codeArea.latitudeLo, codeArea.longitudeHi);
+        return (float) ((distance1 + distance2) / 2);
+    }
+
+    // Great-circle distance in meters between two coordinates on a spherical Earth (haversine).
+    public static double distance(final double latitude1, final double longitude1, final double latitude2, final double longitude2) {
+        final double latitudeSin = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        final double longitudeSin = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        final double a = latitudeSin * latitudeSin + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * longitudeSin * longitudeSin;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Classification
+
+    public enum Classification {
+
+        VALID_FULL,
+        VALID_SHORT,
+        INVALID_LENGTH,
+        INVALID_CHARACTER,
+        INVALID_SEPARATOR,
+        INVALID_PADDING,
+        // The first pair is out of the latitude or longitude range.
+        INVALID_RANGE;
+
+        public boolean isValid() {
+            return (this == VALID_FULL || this == VALID_SHORT);
+        }
+
+    }
+
+    // CodeArea
+
+    public static class CodeArea {
+
+        public double latitudeLo;
+        public double longitudeLo;
+        public double latitudeHi;
+        public double longitudeHi;
+        public int codeLength;
+        public double latitudeCenter;
+        public double longitudeCenter;
+
+        CodeArea() {
+            // Set by decode
+        }
+
+        public CodeArea(final double latitudeLo, final double longitudeLo, final double latitudeHi, final double longitudeHi, final int codeLength) {
+            set(latitudeLo, longitudeLo, latitudeHi, longitudeHi, codeLength);
+        }
+
+        void set(final double latitudeLo, final double longitudeLo, final double latitudeHi, final double longitudeHi, final int codeLength) {
+            this.latitudeLo = latitudeLo;
+            this.longitudeLo = longitudeLo;
+            this.latitudeHi = latitudeHi;
+            this.longitudeHi = longitudeHi;
+            this.codeLength = codeLength;
+            this.latitudeCenter = Math.min(latitudeLo + (latitudeHi - latitudeLo) / 2, LATITUDE_MAX);
+            this.longitudeCenter = Math.min(longitudeLo + (longitudeHi - longitudeLo) / 2, LONGITUDE_MAX);
+        }
+
+        // Bounds are inclusive.
+        public boolean contains(final double latitude, final double longitude) {
+            return (latitude >= latitudeLo && latitude <= latitudeHi && longitude >= longitudeLo && longitude <= longitudeHi);
+        }
+
+        @Override
+        public String toString() {
+            return "CodeArea{southwest=" + latitudeLo + "," + longitudeLo + ", northeast=" + latitudeHi + "," + longitudeHi + ", codeLength=" + codeLength + "}";
+        }
+
+    }
+
+    // CodeArea that can be reused across decodeInto() calls.
+    public static class MutableCodeArea extends CodeArea {
+
+        public MutableCodeArea() {
+            super();
+        }
+
+    }
+
+}
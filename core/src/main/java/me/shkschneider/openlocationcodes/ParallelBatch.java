@@ -0,0 +1,198 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Runs OpenLocationCode.encodeBatch() and decodeBatch(), Distances.matrix() and SpatialJoin.join(), over a ForkJoinPool.
+// Ranges are split in halves down to chunks sized for the pool, each chunk writing its own slice of the preallocated output.
+// Batches at or under the threshold run on the calling thread.
+// Needs Android API 21 (ForkJoinPool); no other class of the engine refers to this one, so it stays off the load path on older API levels.
+public class ParallelBatch {
+
+    public static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+    // Chunks per worker thread, so that work stealing can even out uneven workers.
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final ForkJoinPool mPool;
+    private final int mThreshold;
+
+    public ParallelBatch() {
+        this(null, DEFAULT_THRESHOLD);
+    }
+
+    // A null pool uses a pool shared by all instances, sized to the available processors.
+    public ParallelBatch(final ForkJoinPool pool, final int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        mPool = pool;
+        mThreshold = threshold;
+    }
+
+    public void encode(final double[] latitudes, final double[] longitudes, final int from, final int to, final int codeLength, final long[] out) throws IllegalArgumentException {
+        // Does all of the work for small batches; otherwise fails fast on bad arguments, over the whole range, before splitting.
+        OpenLocationCode.encodeBatch(latitudes, longitudes, from, isSequential(from, to) ? to : from, codeLength, out);
+        if (! isSequential(from, to)) {
+            OpenLocationCode.checkBatch(Math.min(latitudes.length, longitudes.length), from, to, codeLength, out.length, 0);
+            pool().invoke(new RangeTask(from, to, chunkSize(from, to), new Chunk() {
+                @Override
+                public void run(final int start, final int end) {
+                    OpenLocationCode.encodeBatch(latitudes, longitudes, start, end, codeLength, out, start - from);
+                }
+            }));
+        }
+    }
+
+    public void encode(final double[] latitudes, final double[] longitudes, final int from, final int to, final int codeLength, final char[] out) throws IllegalArgumentException {
+        OpenLocationCode.encodeBatch(latitudes, longitudes, from, isSequential(from, to) ? to : from, codeLength, out);
+        if (! isSequential(from, to)) {
+            OpenLocationCode.checkBatch(Math.min(latitudes.length, longitudes.length), from, to, codeLength, out.length / OpenLocationCode.encodedLength(codeLength), 0);
+            pool().invoke(new RangeTask(from, to, chunkSize(from, to), new Chunk() {
+                @Override
+                public void run(final int start, final int end) {
+                    OpenLocationCode.encodeBatch(latitudes, longitudes, start, end, codeLength, out, start - from);
+                }
+            }));
+        }
+    }
+
+    public void decode(final long[] codes, final int from, final int to, final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        OpenLocationCode.decodeBatch(codes, from, isSequential(from, to) ? to : from, latitudes, longitudes, 0);
+        if (! isSequential(from, to)) {
+            OpenLocationCode.checkBatch(codes.length, from, to, OpenLocationCode.CODE_MAX_LENGTH, Math.min(latitudes.length, longitudes.length), 0);
+            pool().invoke(new RangeTask(from, to, chunkSize(from, to), new Chunk() {
+                @Override
+                public void run(final int start, final int end) {
+                    OpenLocationCode.decodeBatch(codes, start, end, latitudes, longitudes, start - from);
+                }
+            }));
+        }
+    }
+
+    // Same as Distances.matrix(), split by rows; the threshold counts distances.
+    public void distances(final long[] rows, final long[] columns, final double[] out) throws IllegalArgumentException {
+        Distances.checkMatrix(rows, columns, out);
+        final double[] centers = Distances.centers(columns);
+        if ((long) rows.length * columns.length <= mThreshold) {
+            Distances.matrix(rows, 0, rows.length, centers, out);
+            return ;
+        }
+        final int chunkSize = Math.max(Math.max(1, mThreshold / Math.max(1, columns.length)), rows.length / (pool().getParallelism() * CHUNKS_PER_THREAD));
+        pool().invoke(new RangeTask(0, rows.length, chunkSize, new Chunk() {
+            @Override
+            public void run(final int start, final int end) {
+                Distances.matrix(rows, start, end, centers, out);
+            }
+        }));
+    }
+
+    // Same as SpatialJoin.join(), split by cells of the first points; the threshold counts first points.
+    public SpatialJoin.Pairs join(final SpatialJoin join, final double[] latitudes1, final double[] longitudes1, final double[] latitudes2, final double[] longitudes2) throws IllegalArgumentException {
+        final SpatialJoin.Side left = side(join, latitudes1, longitudes1);
+        return join(join, left, side(join, latitudes2, longitudes2), false);
+    }
+
+    // Same as SpatialJoin.join() of a single dataset.
+    public SpatialJoin.Pairs join(final SpatialJoin join, final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        final SpatialJoin.Side side = side(join, latitudes, longitudes);
+        return join(join, side, side, true);
+    }
+
+    // Sorting runs on the calling thread.
+    private SpatialJoin.Side side(final SpatialJoin join, final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        final long[] keys = join.keys(latitudes, longitudes);
+        if (isSequential(0, keys.length)) {
+            return join.side(latitudes, longitudes);
+        }
+        pool().invoke(new RangeTask(0, keys.length, chunkSize(0, keys.length), new Chunk() {
+            @Override
+            public void run(final int start, final int end) {
+                join.keys(latitudes, longitudes, start, end, keys);
+            }
+        }));
+        final SpatialJoin.Side side = join.side(keys);
+        pool().invoke(new RangeTask(0, keys.length, chunkSize(0, keys.length), new Chunk() {
+            @Override
+            public void run(final int start, final int end) {
+                SpatialJoin.centers(latitudes, longitudes, side, start, end);
+            }
+        }));
+        return side;
+    }
+
+    private SpatialJoin.Pairs join(final SpatialJoin join, final SpatialJoin.Side left, final SpatialJoin.Side right, final boolean self) {
+        final int size = left.indexes.length;
+        if (isSequential(0, size)) {
+            return join.join(left, right, self);
+        }
+        // Chunks of about chunkSize() points, each probing whole cells into its own buffer.
+        final int chunks = (int) ((size + (long) chunkSize(0, size) - 1) / chunkSize(0, size));
+        final SpatialJoin.Buffer[] buffers = new SpatialJoin.Buffer[chunks];
+        pool().invoke(new RangeTask(0, chunks, 1, new Chunk() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int chunk = start; chunk < end; chunk++) {
+                    buffers[chunk] = new SpatialJoin.Buffer();
+                    final int from = left.cellAt((int) ((long) size * chunk / chunks));
+                    final int to = left.cellAt((int) ((long) size * (chunk + 1) / chunks));
+                    join.probe(left, right, self, from, to, buffers[chunk]);
+                }
+            }
+        }));
+        return SpatialJoin.pairs(buffers, size);
+    }
+
+    private boolean isSequential(final int from, final int to) {
+        return (to - from <= mThreshold);
+    }
+
+    private ForkJoinPool pool() {
+        return (mPool != null) ? mPool : DefaultPool.INSTANCE;
+    }
+
+    private int chunkSize(final int from, final int to) {
+        return Math.max(mThreshold, (to - from) / (pool().getParallelism() * CHUNKS_PER_THREAD));
+    }
+
+    private static final class DefaultPool {
+
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+
+    }
+
+    private interface Chunk {
+
+        void run(final int start, final int end);
+
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mFrom;
+        private final int mTo;
+        private final int mChunkSize;
+        private final Chunk mChunk;
+
+        RangeTask(final int from, final int to, final int chunkSize, final Chunk chunk) {
+            mFrom = from;
+            mTo = to;
+            mChunkSize = chunkSize;
+            mChunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= mChunkSize) {
+                mChunk.run(mFrom, mTo);
+                return;
+            }
+            final int middle = (mFrom + mTo) >>> 1;
+            invokeAll(new RangeTask(mFrom, middle, mChunkSize, mChunk), new RangeTask(middle, mTo, mChunkSize, mChunk));
+        }
+
+    }
+
+}
@@ -0,0 +1,373 @@
+package me.shkschneider.openlocationcodes;
+
+// Immutable Open Location Code backed by a single packed long.
+//
+// Layout (bit 0 is the least significant):
+// - bits 0-3: code length in digits (for short codes, including the digits to recover)
+// - bits 4-58: eleven 5-bit digit slots, first digit in the highest slot, holding the digit value + 1 (0 for padding or missing digits)
+// - bit 59: set for short codes, whose leading slots are left empty
+//
+// Full codes compare in the same order as their String form, so packed values can be sorted and range-scanned directly.
+public final class PlusCode implements Comparable<PlusCode> {
+
+    public static final int CODE_MAX_LENGTH = OpenLocationCode.CODE_MAX_LENGTH;
+
+    private static final int LENGTH_BITS = 4;
+    private static final int DIGIT_BITS = 5;
+    private static final long DIGIT_MASK = (1L << DIGIT_BITS) - 1;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long SHORT_FLAG = 1L << (LENGTH_BITS + DIGIT_BITS * CODE_MAX_LENGTH);
+
+    private final long packed;
+    // Materialized on demand.
+    private String code;
+
+    private PlusCode(final long packed) {
+        this.packed = packed;
+    }
+
+    public static PlusCode valueOf(final long packed) throws IllegalArgumentException {
+        if (! isValid(packed)) {
+            throw new IllegalArgumentException("Passed value is not a packed Open Location Code: " + packed);
+        }
+        return new PlusCode(packed);
+    }
+
+    public static PlusCode valueOf(final CharSequence code) throws IllegalArgumentException {
+        return new PlusCode(pack(code));
+    }
+
+    public static PlusCode encode(final double latitude, final double longitude, final int codeLength) throws IllegalArgumentException {
+        return new PlusCode(pack(latitude, longitude, codeLength));
+    }
+
+    public long longValue() {
+        return packed;
+    }
+
+    public int codeLength() {
+        return codeLength(packed);
+    }
+
+    public boolean isShort() {
+        return isShort(packed);
+    }
+
+    public boolean isPadded() {
+        return isPadded(packed);
+    }
+
+    public OpenLocationCode.CodeArea decode() throws IllegalArgumentException {
+        return decode(packed);
+    }
+
+    @Override
+    public int compareTo(final PlusCode other) {
+        return (packed < other.packed) ? -1 : ((packed == other.packed) ? 0 : 1);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        return (object instanceof PlusCode && ((PlusCode) object).packed == packed);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (packed ^ (packed >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        if (code == null) {
+            code = unpack(packed);
+        }
+        return code;
+    }
+
+    // Packed values
+
+    public static long pack(final double latitude, final double longitude, final int codeLength) throws IllegalArgumentException {
+        OpenLocationCode.encodedLength(codeLength);
+        if (codeLength > CODE_MAX_LENGTH) {
+            throw new IllegalArgumentException("Open Location Code length too long to pack: " + codeLength);
+        }
+        return pack(OpenLocationCode.latitudeToInteger(latitude, codeLength), OpenLocationCode.longitudeToInteger(longitude), codeLength);
+    }
+
+    // Packs integer coordinates, with the code length already checked.
+    static long pack(final long latitudeValue, final long longitudeValue, final int codeLength) {
+        long packed = codeLength;
+        for (int digit = 0; digit < codeLength; digit++) {
+            packed |= (OpenLocationCode.digitAt(latitudeValue, longitudeValue, digit) + 1L) << shift(digit);
+        }
+        return packed;
+    }
+
+    public static long pack(final CharSequence code) throws IllegalArgumentException {
+        final OpenLocationCode.Classification classification = OpenLocationCode.classify(code, 0, code.length());
+        if (! classification.isValid()) {
+            throw new IllegalArgumentException("Passed Open Location Code is not valid (" + classification + "): " + code);
+        }
+        return pack(code, 0, code.length(), classification == OpenLocationCode.Classification.VALID_SHORT);
+    }
+
+    // Packs an already classified code.
+    static long pack(final CharSequence code, final int offset, final int length, final boolean isShort) throws IllegalArgumentException {
+        // Short codes start at the slot of their first digit.
+        int digit = 0;
+        if (isShort) {
+            int separator = 0;
+            while (code.charAt(offset + separator) != OpenLocationCode.SEPARATOR) {
+                separator += 1;
+            }
+            digit = OpenLocationCode.SEPARATOR_POSITION - separator;
+        }
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = code.charAt(offset + i);
+            if (c == OpenLocationCode.SEPARATOR || c == OpenLocationCode.PADDING_CHARACTER) {
+                continue ;
+            }
+            if (digit >= CODE_MAX_LENGTH) {
+                throw new IllegalArgumentException("Open Location Code too long to pack: " + code.subSequence(offset, offset + length));
+            }
+            packed |= (OpenLocationCode.digitValue(c) + 1L) << shift(digit);
+            digit += 1;
+        }
+        return packed | digit | (isShort ? SHORT_FLAG : 0);
+    }
+
+    public static String unpack(final long packed) {
+        final char[] buffer = new char[OpenLocationCode.SEPARATOR_POSITION + CODE_MAX_LENGTH];
+        return new String(buffer, 0, unpack(packed, buffer, 0));
+    }
+
+    // Writes the code into buffer at offset and returns the number of characters written.
+    public static int unpack(final long packed, final char[] buffer, final int offset) {
+        final int codeLength = codeLength(packed);
+        int position = offset;
+        int digit = firstDigit(packed);
+        for (; digit < Math.max(codeLength, OpenLocationCode.SEPARATOR_POSITION); digit++) {
+            if (digit == OpenLocationCode.SEPARATOR_POSITION) {
+                buffer[position++] = OpenLocationCode.SEPARATOR;
+            }
+            buffer[position++] = (digit < codeLength) ? OpenLocationCode.digitChar(digitValue(packed, digit)) : OpenLocationCode.PADDING_CHARACTER;
+        }
+        if (codeLength <= OpenLocationCode.SEPARATOR_POSITION) {
+            buffer[position++] = OpenLocationCode.SEPARATOR;
+        }
+        return position - offset;
+    }
+
+    public static boolean isValid(final long packed) {
+        if ((packed & ~(SHORT_FLAG | (SHORT_FLAG - 1))) != 0) {
+            return false;
+        }
+        final int codeLength = codeLength(packed);
+        if (codeLength < 2 || codeLength > CODE_MAX_LENGTH || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+            return false;
+        }
+        final int first = firstDigit(packed);
+        if (isShort(packed) && (first == 0 || first > OpenLocationCode.SEPARATOR_POSITION || (first % 2) != 0 || codeLength < OpenLocationCode.SEPARATOR_POSITION)) {
+            return false;
+        }
+        for (int digit = 0; digit < CODE_MAX_LENGTH; digit++) {
+            final long slot = (packed >>> shift(digit)) & DIGIT_MASK;
+            if ((digit >= first && digit < codeLength) != (slot != 0) || slot > OpenLocationCode.ENCODING_BASE) {
+                return false;
+            }
+        }
+        // Like classify(): a first pair decoding to a latitude of >= 90 degrees or a longitude of >= 180 degrees (short codes have none).
+        return isShort(packed) || (digitValue(packed, 0) * OpenLocationCode.ENCODING_BASE < OpenLocationCode.LATITUDE_MAX * 2
+                && digitValue(packed, 1) * OpenLocationCode.ENCODING_BASE < OpenLocationCode.LONGITUDE_MAX * 2);
+    }
+
+    public static int codeLength(final long packed) {
+        return (int) (packed & LENGTH_MASK);
+    }
+
+    public static boolean isShort(final long packed) {
+        return ((packed & SHORT_FLAG) != 0);
+    }
+
+    public static boolean isPadded(final long packed) {
+        return (codeLength(packed) < OpenLocationCode.SEPARATOR_POSITION);
+    }
+
+    // Value (0-19) of the given digit, or -1 for padding and missing digits.
+    public static int digitValue(final long packed, final int digit) {
+        return (int) ((packed >>> shift(digit)) & DIGIT_MASK) - 1;
+    }
+
+    public static OpenLocationCode.CodeArea decode(final long packed) throws IllegalArgumentException {
+        if (isShort(packed)) {
+            throw new IllegalArgumentException("Cannot decode short Open Location Code: " + unpack(packed));
+        }
+        return OpenLocationCode.codeArea(latitudeValue(packed), longitudeValue(packed), codeLength(packed));
+    }
+
+    // Algebra (on full codes, without decoding)
+
+    // The code truncated to the given (valid, not longer) length.
+    public static long parent(final long packed, final int codeLength) throws IllegalArgumentException {
+        checkFull(packed);
+        if (codeLength < 2 || codeLength > codeLength(packed) || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+            throw new IllegalArgumentException("Invalid parent length " + codeLength + " for Open Location Code: " + unpack(packed));
+        }
+        return (packed & ~((1L << shift(codeLength - 1)) - 1)) | codeLength;
+    }
+
+    // The code of the same length the given number of cells north (or south) and east (or west).
+    // Longitudes wrap around the antimeridian; latitudes stop at the northern- and southernmost rows.
+    public static long neighbor(final long packed, final int latitudeSteps, final int longitudeSteps) throws IllegalArgumentException {
+        checkFull(packed);
+        final int codeLength = codeLength(packed);
+        final long height = OpenLocationCode.latitudePlaceValue(codeLength);
+        final long width = OpenLocationCode.longitudePlaceValue(codeLength);
+        final long latitudes = OpenLocationCode.LATITUDE_MAX * 2 * OpenLocationCode.LATITUDE_PRECISION;
+        final long longitudes = OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION;
+        final long latitudeValue = Math.max(0, Math.min(latitudes - height, latitudeValue(packed) + latitudes / 2 + latitudeSteps * height));
+        long longitudeValue = (longitudeValue(packed) + longitudes / 2 + longitudeSteps * width) % longitudes;
+        if (longitudeValue < 0) {
+            longitudeValue += longitudes;
+        }
+        return pack(latitudeValue, longitudeValue, codeLength);
+    }
+
+    // Writes the up to 8 distinct codes around the code (fewer in the polar rows) into out at offset, from the south-west, and returns their number.
+    public static int neighbors(final long packed, final long[] out, final int offset) throws IllegalArgumentException {
+        checkFull(packed);
+        if (offset < 0 || out.length - offset < 8) {
+            throw new IllegalArgumentException("Output too small for 8 codes");
+        }
+        int count = 0;
+        for (int latitudeSteps = -1; latitudeSteps <= 1; latitudeSteps++) {
+            final long row = neighbor(packed, latitudeSteps, 0);
+            if (latitudeSteps != 0 && row == packed) {
+                continue ;
+            }
+            for (int longitudeSteps = -1; longitudeSteps <= 1; longitudeSteps++) {
+                if (latitudeSteps != 0 || longitudeSteps != 0) {
+                    out[offset + count++] = (longitudeSteps == 0) ? row : neighbor(row, 0, longitudeSteps);
+                }
+            }
+        }
+        return count;
+    }
+
+    // Smallest packed value of the code and all of its descendants (the code itself).
+    public static long rangeMin(final long packed) throws IllegalArgumentException {
+        checkFull(packed);
+        return packed;
+    }
+
+    // Largest packed value any descendant of the code can have, so that [rangeMin, rangeMax] is a prefix scan over sorted codes.
+    public static long rangeMax(final long packed) throws IllegalArgumentException {
+        checkFull(packed);
+        return packed | ((1L << shift(codeLength(packed) - 1)) - 1);
+    }
+
+    // Whether packed is cell or one of its descendants.
+    public static boolean contains(final long cell, final long packed) throws IllegalArgumentException {
+        return (packed >= rangeMin(cell) && packed <= rangeMax(cell) && ! isShort(packed));
+    }
+
+    public static Children children(final long packed) throws IllegalArgumentException {
+        final Children children = new Children();
+        children.reset(packed);
+        return children;
+    }
+
+    private static void checkFull(final long packed) throws IllegalArgumentException {
+        if (isShort(packed) || codeLength(packed) == 0) {
+            throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + packed);
+        }
+    }
+
+    // South-west corner latitude of a full code in integer units.
+    static long latitudeValue(final long packed) {
+        long latitudeValue = -OpenLocationCode.LATITUDE_MAX * OpenLocationCode.LATITUDE_PRECISION;
+        for (int digit = 0; digit < codeLength(packed); digit++) {
+            latitudeValue += OpenLocationCode.latitudeUnits(digit, digitValue(packed, digit));
+        }
+        return latitudeValue;
+    }
+
+    // South-west corner longitude of a full code in integer units.
+    static long longitudeValue(final long packed) {
+        long longitudeValue = -OpenLocationCode.LONGITUDE_MAX * OpenLocationCode.LONGITUDE_PRECISION;
+        for (int digit = 0; digit < codeLength(packed); digit++) {
+            longitudeValue += OpenLocationCode.longitudeUnits(digit, digitValue(packed, digit));
+        }
+        return longitudeValue;
+    }
+
+    private static int shift(final int digit) {
+        return LENGTH_BITS + DIGIT_BITS * (CODE_MAX_LENGTH - 1 - digit);
+    }
+
+    // Smallest descendant of CODE_MAX_LENGTH digits of a full code (its south-west corner), which sorts among full-length codes where the code's cell starts.
+    static long descendant(final long packed) {
+        long descendant = (packed & ~LENGTH_MASK) | CODE_MAX_LENGTH;
+        for (int digit = codeLength(packed); digit < CODE_MAX_LENGTH; digit++) {
+            descendant |= 1L << shift(digit);
+        }
+        return descendant;
+    }
+
+    // Short code of a full code without its first digits (length unchanged, as it includes the digits to recover).
+    static long shorten(final long packed, final int digits) {
+        return (packed & ((1L << shift(digits - 1)) - 1)) | SHORT_FLAG;
+    }
+
+    // Index of the first digit present: the number of digits a short code omits, 0 for full codes.
+    static int firstDigit(final long packed) {
+        int digit = 0;
+        while (isShort(packed) && digit < CODE_MAX_LENGTH && digitValue(packed, digit) == -1) {
+            digit += 1;
+        }
+        return digit;
+    }
+
+    // Iterates over the 400 children of a code (20 past 10 digits) in ascending order; reusable through reset().
+    public static final class Children {
+
+        private long mBase;
+        private int mCodeLength;
+        private int mCount;
+        private int mIndex;
+
+        public void reset(final long packed) throws IllegalArgumentException {
+            checkFull(packed);
+            final int codeLength = PlusCode.codeLength(packed);
+            mCodeLength = (codeLength < OpenLocationCode.PAIR_CODE_LENGTH) ? codeLength + 2 : codeLength + 1;
+            if (mCodeLength > CODE_MAX_LENGTH) {
+                throw new IllegalArgumentException("Open Location Code children too long to pack: " + unpack(packed));
+            }
+            mBase = (packed & ~LENGTH_MASK) | mCodeLength;
+            mCount = (codeLength < OpenLocationCode.PAIR_CODE_LENGTH) ? OpenLocationCode.ENCODING_BASE * OpenLocationCode.ENCODING_BASE : OpenLocationCode.ENCODING_BASE;
+            mIndex = 0;
+        }
+
+        public int codeLength() {
+            return mCodeLength;
+        }
+
+        public boolean hasNext() {
+            return (mIndex < mCount);
+        }
+
+        public long next() {
+            if (mIndex >= mCount) {
+                throw new IllegalStateException("No more children");
+            }
+            final int index = mIndex++;
+            if (mCount == OpenLocationCode.ENCODING_BASE) {
+                return mBase | ((index + 1L) << shift(mCodeLength - 1));
+            }
+            return mBase | ((index / OpenLocationCode.ENCODING_BASE + 1L) << shift(mCodeLength - 2)) | ((index % OpenLocationCode.ENCODING_BASE + 1L) << shift(mCodeLength - 1));
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+package me.shkschneider.openlocationcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Extracts valid full and short codes from text in a single pass.
+// Text is split into tokens of ASCII letters, digits and separators; only tokens with a separator are classified,
+// from a fixed window, so that non-matching text never builds strings.
+// Not thread-safe: use one scanner per thread.
+public class PlusCodeScanner {
+
+    public interface Listener {
+
+        // Offset of the code in characters (bytes for files), its length in characters,
+        // and its packed value (limited to the first PlusCode.CODE_MAX_LENGTH digits).
+        void onCode(final long offset, final int length, final long packed);
+
+    }
+
+    // Longest token considered as a code.
+    private static final int TOKEN_MAX_LENGTH = 32;
+    private static final int READ_BUFFER_LENGTH = 8 * 1024;
+    private static final long MAP_REGION_LENGTH = 64L * 1024 * 1024;
+    private static final boolean[] TOKEN_CHARACTERS = new boolean[128];
+
+    static {
+        for (int c = 0; c < TOKEN_CHARACTERS.length; c++) {
+            TOKEN_CHARACTERS[c] = Character.isLetterOrDigit(c) || c == OpenLocationCode.SEPARATOR;
+        }
+    }
+
+    private final Listener mListener;
+    private final Token mToken = new Token();
+    private long mTokenOffset;
+    private int mSeparator;
+    private char[] mReadBuffer;
+
+    public PlusCodeScanner(final Listener listener) {
+        mListener = listener;
+    }
+
+    // CharBuffer is a CharSequence.
+    public void scan(final CharSequence text) {
+        reset();
+        for (int i = 0; i < text.length(); i++) {
+            accept(text.charAt(i), i);
+        }
+        flush();
+    }
+
+    public void scan(final Reader reader) throws IOException {
+        if (mReadBuffer == null) {
+            mReadBuffer = new char[READ_BUFFER_LENGTH];
+        }
+        reset();
+        long offset = 0;
+        int read;
+        while ((read = reader.read(mReadBuffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                accept(mReadBuffer[i], offset + i);
+            }
+            offset += read;
+        }
+        flush();
+    }
+
+    // Bytes from position to limit, as ASCII (other bytes separate tokens).
+    public void scan(final ByteBuffer buffer) {
+        reset();
+        scan(buffer, 0);
+        flush();
+    }
+
+    // Maps the file region by region, so that it may be larger than the heap (or memory).
+    public void scan(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long size = channel.size();
+            reset();
+            for (long position = 0; position < size; position += MAP_REGION_LENGTH) {
+                scan(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_REGION_LENGTH, size - position)), position);
+            }
+            flush();
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void scan(final ByteBuffer buffer, final long offset) {
+        final int position = buffer.position();
+        for (int i = position; i < buffer.limit(); i++) {
+            accept((char) (buffer.get(i) & 0xFF), offset + i - position);
+        }
+    }
+
+    private void reset() {
+        mToken.length = 0;
+        mSeparator = -1;
+    }
+
+    private void accept(final char c, final long offset) {
+        if (c >= TOKEN_CHARACTERS.length || ! TOKEN_CHARACTERS[c]) {
+            flush();
+            return;
+        }
+        if (mToken.length == 0) {
+            mTokenOffset = offset;
+        }
+        if (mToken.length < TOKEN_MAX_LENGTH) {
+            mToken.chars[mToken.length] = c;
+            if (c == OpenLocationCode.SEPARATOR) {
+                mSeparator = mToken.length;
+            }
+        }
+        // Keeps counting past the window so that overlong tokens are skipped.
+        mToken.length += 1;
+    }
+
+    private void flush() {
+        if (mSeparator != -1 && mToken.length <= TOKEN_MAX_LENGTH) {
+            final OpenLocationCode.Classification classification = OpenLocationCode.classify(mToken, 0, mToken.length);
+            if (classification.isValid()) {
+                // Digits after the separator beyond what packs are dropped.
+                final int length = Math.min(mToken.length, mSeparator + 1 + PlusCode.CODE_MAX_LENGTH - OpenLocationCode.SEPARATOR_POSITION);
+                mListener.onCode(mTokenOffset, mToken.length, PlusCode.pack(mToken, 0, length, classification == OpenLocationCode.Classification.VALID_SHORT));
+            }
+        }
+        reset();
+    }
+
+    // Reusable view over the current token.
+    private static final class Token implements CharSequence {
+
+        final char[] chars = new char[TOKEN_MAX_LENGTH];
+        int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+
+    }
+
+}
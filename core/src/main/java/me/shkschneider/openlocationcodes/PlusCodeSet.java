@@ -0,0 +1,328 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Immutable sorted set of packed full codes (cells, possibly of mixed lengths), compressed in blocks:
+// each block of BLOCK_SIZE codes stores its first code as an anchor and the following ones as varint deltas,
+// which takes 2 to 3 bytes per code for dense cells instead of hundreds for a HashSet<String>.
+//
+// Lookups binary search the anchors, then decode at most one block.
+public final class PlusCodeSet {
+
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int[] LENGTHS = { 2, 4, 6, 8, 10, 11 };
+
+    public static final PlusCodeSet EMPTY = new PlusCodeSet(new long[0], new int[0], new byte[0], 0, 0);
+
+    // First code of each block.
+    private final long[] mAnchors;
+    // Offset of each block's deltas in mDeltas.
+    private final int[] mOffsets;
+    private final byte[] mDeltas;
+    private final int mSize;
+    // Bit set of the code lengths present.
+    private final int mLengths;
+
+    private PlusCodeSet(final long[] anchors, final int[] offsets, final byte[] deltas, final int size, final int lengths) {
+        mAnchors = anchors;
+        mOffsets = offsets;
+        mDeltas = deltas;
+        mSize = size;
+        mLengths = lengths;
+    }
+
+    // Codes may be in any order and contain duplicates; the array is left untouched.
+    public static PlusCodeSet of(final long[] packed) throws IllegalArgumentException {
+        final long[] sorted = packed.clone();
+        Arrays.sort(sorted);
+        final Builder builder = new Builder(sorted.length);
+        for (final long code : sorted) {
+            if (PlusCode.isShort(code) || ! PlusCode.isValid(code)) {
+                throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + code);
+            }
+            builder.add(code);
+        }
+        return builder.build();
+    }
+
+    public static PlusCodeSet of(final CharSequence... codes) throws IllegalArgumentException {
+        final long[] packed = new long[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            packed[i] = PlusCode.pack(codes[i]);
+        }
+        return of(packed);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // Whether the code itself is in the set.
+    public boolean contains(final long packed) {
+        final int block = block(packed);
+        if (block < 0) {
+            return false;
+        }
+        long code = mAnchors[block];
+        int offset = mOffsets[block];
+        final int end = end(block);
+        while (code < packed && offset < end) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = mDeltas[offset++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            code += delta;
+        }
+        return code == packed;
+    }
+
+    public boolean contains(final CharSequence code) throws IllegalArgumentException {
+        return contains(PlusCode.pack(code));
+    }
+
+    // Whether the code or any of its ancestors is in the set.
+    public boolean covers(final long packed) throws IllegalArgumentException {
+        final int codeLength = PlusCode.codeLength(packed);
+        for (final int length : LENGTHS) {
+            if (length > codeLength) {
+                break ;
+            }
+            if ((mLengths & (1 << length)) != 0 && contains(PlusCode.parent(packed, length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether any cell in the set contains the coordinates.
+    public boolean covers(final double latitude, final double longitude) throws IllegalArgumentException {
+        return covers(PlusCode.pack(latitude, longitude, PlusCode.CODE_MAX_LENGTH));
+    }
+
+    // Cells covered by either set: codes whose ancestor is in either set are dropped.
+    public PlusCodeSet union(final PlusCodeSet other) {
+        final Builder builder = new Builder(mSize + other.mSize);
+        final Cursor a = cursor();
+        final Cursor b = other.cursor();
+        long x = a.hasNext() ? a.next() : Long.MAX_VALUE;
+        long y = b.hasNext() ? b.next() : Long.MAX_VALUE;
+        while (x != Long.MAX_VALUE || y != Long.MAX_VALUE) {
+            if (x <= y) {
+                builder.addCell(x);
+                x = a.hasNext() ? a.next() : Long.MAX_VALUE;
+            }
+            else {
+                builder.addCell(y);
+                y = b.hasNext() ? b.next() : Long.MAX_VALUE;
+            }
+        }
+        return builder.build();
+    }
+
+    // Cells covered by both sets: wherever a cell of one set lies within a cell of the other, the finer one is kept,
+    // so that intersecting coverings of mixed lengths (like RegionCoverer's) keeps every overlap.
+    public PlusCodeSet intersection(final PlusCodeSet other) {
+        final Builder builder = new Builder(Math.min(mSize, other.mSize));
+        final Cursor a = cursor();
+        final Cursor b = other.cursor();
+        if (! a.hasNext() || ! b.hasNext()) {
+            return EMPTY;
+        }
+        long x = a.next();
+        long y = b.next();
+        while (true) {
+            // Sorted codes are in prefix order: a cell is followed by its descendants, up to its rangeMax().
+            if (y >= x && y <= PlusCode.rangeMax(x)) {
+                builder.addCell(y);
+                if (! b.hasNext()) {
+                    break ;
+                }
+                y = b.next();
+            }
+            else if (x >= y && x <= PlusCode.rangeMax(y)) {
+                builder.addCell(x);
+                if (! a.hasNext()) {
+                    break ;
+                }
+                x = a.next();
+            }
+            else if (x < y) {
+                if (! a.hasNext()) {
+                    break ;
+                }
+                x = a.next();
+            }
+            else {
+                if (! b.hasNext()) {
+                    break ;
+                }
+                y = b.next();
+            }
+        }
+        return builder.build();
+    }
+
+    public long[] toArray() {
+        final long[] array = new long[mSize];
+        final Cursor cursor = cursor();
+        for (int i = 0; i < array.length; i++) {
+            array[i] = cursor.next();
+        }
+        return array;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Approximate heap footprint in bytes (object and array headers included).
+    public long memoryUsage() {
+        return 16 + 3 * 16 + 8L * mAnchors.length + 4L * mOffsets.length + mDeltas.length + 16;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (! (object instanceof PlusCodeSet)) {
+            return false;
+        }
+        final PlusCodeSet other = (PlusCodeSet) object;
+        return (mSize == other.mSize && Arrays.equals(mAnchors, other.mAnchors) && Arrays.equals(mDeltas, other.mDeltas));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(mAnchors) + Arrays.hashCode(mDeltas);
+    }
+
+    @Override
+    public String toString() {
+        return "PlusCodeSet{size=" + mSize + ", memoryUsage=" + memoryUsage() + "}";
+    }
+
+    // Last block whose anchor is not greater than packed, or -1.
+    private int block(final long packed) {
+        final int index = Arrays.binarySearch(mAnchors, packed);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    private int end(final int block) {
+        return (block + 1 < mOffsets.length) ? mOffsets[block + 1] : mDeltas.length;
+    }
+
+    // Iterates over the codes in ascending order.
+    public final class Cursor {
+
+        private int mIndex;
+        private int mOffset;
+        private long mCode;
+
+        private Cursor() {
+        }
+
+        public boolean hasNext() {
+            return mIndex < mSize;
+        }
+
+        public long next() {
+            if (mIndex >= mSize) {
+                throw new IllegalStateException("No more codes");
+            }
+            if ((mIndex & (BLOCK_SIZE - 1)) == 0) {
+                mCode = mAnchors[mIndex >>> BLOCK_SHIFT];
+                mOffset = mOffsets[mIndex >>> BLOCK_SHIFT];
+            }
+            else {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = mDeltas[mOffset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                mCode += delta;
+            }
+            mIndex += 1;
+            return mCode;
+        }
+
+    }
+
+    // Appends strictly ascending codes; duplicates of the last code are ignored.
+    private static final class Builder {
+
+        private long[] mAnchors;
+        private int[] mOffsets;
+        private byte[] mDeltas;
+        private int mLength;
+        private int mSize;
+        private int mLengths;
+        private long mLast = -1;
+        // Largest descendant of the last cell added through addCell().
+        private long mLimit = -1;
+
+        Builder(final int capacity) {
+            final int blocks = (capacity + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+            mAnchors = new long[Math.max(1, blocks)];
+            mOffsets = new int[Math.max(1, blocks)];
+            mDeltas = new byte[Math.max(16, capacity * 2)];
+        }
+
+        void add(final long packed) {
+            if (packed == mLast) {
+                return ;
+            }
+            if ((mSize & (BLOCK_SIZE - 1)) == 0) {
+                final int block = mSize >>> BLOCK_SHIFT;
+                if (block == mAnchors.length) {
+                    mAnchors = Arrays.copyOf(mAnchors, block * 2);
+                    mOffsets = Arrays.copyOf(mOffsets, block * 2);
+                }
+                mAnchors[block] = packed;
+                mOffsets[block] = mLength;
+            }
+            else {
+                if (mLength + 9 > mDeltas.length) {
+                    mDeltas = Arrays.copyOf(mDeltas, mDeltas.length * 2);
+                }
+                long delta = packed - mLast;
+                while ((delta & ~0x7FL) != 0) {
+                    mDeltas[mLength++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                mDeltas[mLength++] = (byte) delta;
+            }
+            mLengths |= 1 << PlusCode.codeLength(packed);
+            mLast = packed;
+            mSize += 1;
+        }
+
+        // Same, ignoring descendants of the last cell added.
+        void addCell(final long packed) {
+            if (packed <= mLimit) {
+                return ;
+            }
+            add(packed);
+            mLimit = PlusCode.rangeMax(packed);
+        }
+
+        PlusCodeSet build() {
+            final int blocks = (mSize + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+            return new PlusCodeSet(Arrays.copyOf(mAnchors, blocks), Arrays.copyOf(mOffsets, blocks), Arrays.copyOf(mDeltas, mLength), mSize, mLengths);
+        }
+
+    }
+
+}
@@ -0,0 +1,396 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Immutable in-memory index of points for box and nearest neighbors queries, safe for concurrent readers.
+// Points are sorted by their packed code of PlusCode.CODE_MAX_LENGTH digits into primitive arrays,
+// and each prefix level (2 to 10 digits) keeps its non-empty cells with the range of points they hold,
+// so that a cell is found with one binary search over that level.
+// Points must be within [-90, 90] and [-180, 180]; longitude 180 is reported as -180.
+public class PointIndex {
+
+    public interface Visitor {
+
+        // Index of the point in the arrays the index was built from.
+        void onPoint(final int index, final double latitude, final double longitude);
+
+    }
+
+    private static final int[] LEVELS = { 2, 4, 6, 8, 10 };
+    // Box queries use the finest level with at most this many cells.
+    private static final int QUERY_CELLS = 256;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final long[] mCodes;
+    private final int[] mIndexes;
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    // Per level: its cells, and the start of their points (one more entry, for the end).
+    private final long[][] mCells = new long[LEVELS.length][];
+    private final int[][] mStarts = new int[LEVELS.length][];
+
+    public PointIndex(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Invalid points: " + latitudes.length + " latitudes and " + longitudes.length + " longitudes");
+        }
+        final int size = latitudes.length;
+        mCodes = new long[size];
+        mIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (! (Math.abs(latitudes[i]) <= OpenLocationCode.LATITUDE_MAX && Math.abs(longitudes[i]) <= OpenLocationCode.LONGITUDE_MAX)) {
+                throw new IllegalArgumentException("Invalid point " + i + ": " + latitudes[i] + "," + longitudes[i]);
+            }
+            mCodes[i] = PlusCode.pack(latitudes[i], longitudes[i], PlusCode.CODE_MAX_LENGTH);
+            mIndexes[i] = i;
+        }
+        sort(mCodes, mIndexes, 0, size - 1);
+        mLatitudes = new double[size];
+        mLongitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            mLatitudes[i] = latitudes[mIndexes[i]];
+            mLongitudes[i] = OpenLocationCode.normalizeLongitude(longitudes[mIndexes[i]]);
+        }
+        for (int level = 0; level < LEVELS.length; level++) {
+            buildLevel(level);
+        }
+    }
+
+    private void buildLevel(final int level) {
+        long[] cells = new long[16];
+        int[] starts = new int[17];
+        int count = 0;
+        for (int i = 0; i < mCodes.length; i++) {
+            final long cell = PlusCode.parent(mCodes[i], LEVELS[level]);
+            if (count > 0 && cells[count - 1] == cell) {
+                continue ;
+            }
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+                starts = Arrays.copyOf(starts, count * 2 + 1);
+            }
+            cells[count] = cell;
+            starts[count] = i;
+            count += 1;
+        }
+        starts[count] = mCodes.length;
+        mCells[level] = Arrays.copyOf(cells, count);
+        mStarts[level] = Arrays.copyOf(starts, count + 1);
+    }
+
+    public int size() {
+        return mCodes.length;
+    }
+
+    // Visits the points within the closed box, which crosses the antimeridian if longitudeLo > longitudeHi, and returns their number.
+    public int query(final double latitudeLo, final double longitudeLo, final double latitudeHi, final double longitudeHi, final Visitor visitor) throws IllegalArgumentException {
+        if (Double.isNaN(latitudeLo) || Double.isNaN(longitudeLo) || Double.isNaN(latitudeHi) || Double.isNaN(longitudeHi) || latitudeLo > latitudeHi) {
+            throw new IllegalArgumentException("Invalid box: " + latitudeLo + "," + longitudeLo + " " + latitudeHi + "," + longitudeHi);
+        }
+        final double west = Math.max(-OpenLocationCode.LONGITUDE_MAX, Math.min(OpenLocationCode.LONGITUDE_MAX, longitudeLo));
+        final double east = Math.max(-OpenLocationCode.LONGITUDE_MAX, Math.min(OpenLocationCode.LONGITUDE_MAX, longitudeHi));
+        if (west > east) {
+            return query(latitudeLo, west, latitudeHi, OpenLocationCode.LONGITUDE_MAX, visitor)
+                    + query(latitudeLo, -OpenLocationCode.LONGITUDE_MAX, latitudeHi, east, visitor);
+        }
+        final long south = OpenLocationCode.latitudeToInteger(latitudeLo, PlusCode.CODE_MAX_LENGTH);
+        final long north = OpenLocationCode.latitudeToInteger(latitudeHi, PlusCode.CODE_MAX_LENGTH);
+        final long westValue = longitudeValue(west);
+        final long eastValue = longitudeValue(east);
+        int level = 0;
+        for (int l = LEVELS.length - 1; l > 0; l--) {
+            final long rows = north / height(l) - south / height(l) + 1;
+            final long columns = eastValue / width(l) - westValue / width(l) + 1;
+            if (rows * columns <= QUERY_CELLS) {
+                level = l;
+                break ;
+            }
+        }
+        final long height = height(level);
+        final long width = width(level);
+        int count = 0;
+        for (long row = south / height; row <= north / height; row++) {
+            for (long column = westValue / width; column <= eastValue / width; column++) {
+                final int cell = find(level, PlusCode.pack(row * height, column * width, LEVELS[level]));
+                if (cell == -1) {
+                    continue ;
+                }
+                // Points of cells strictly within the box need no check (units order like the coordinates they come from).
+                final boolean inside = (row * height > south && (row + 1) * height <= north && column * width > westValue && (column + 1) * width <= eastValue);
+                for (int i = mStarts[level][cell]; i < mStarts[level][cell + 1]; i++) {
+                    if (inside || (mLatitudes[i] >= latitudeLo && mLatitudes[i] <= latitudeHi && mLongitudes[i] >= west && mLongitudes[i] <= east)) {
+                        visitor.onPoint(mIndexes[i], mLatitudes[i], mLongitudes[i]);
+                        count += 1;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    // Visits the k points nearest to the given coordinates, nearest first, and returns their number (less than k only if the index is smaller).
+    public int nearest(final double latitude, final double longitude, final int k, final Visitor visitor) throws IllegalArgumentException {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || k < 0) {
+            throw new IllegalArgumentException("Invalid query: " + k + " nearest to " + latitude + "," + longitude);
+        }
+        final Heap heap = new Heap(Math.min(k, mCodes.length));
+        if (heap.capacity == 0) {
+            return 0;
+        }
+        final double clippedLatitude = Math.max(-OpenLocationCode.LATITUDE_MAX, Math.min(OpenLocationCode.LATITUDE_MAX, latitude));
+        final double normalizedLongitude = OpenLocationCode.normalizeLongitude(longitude);
+        final long latitudeValue = OpenLocationCode.latitudeToInteger(clippedLatitude, PlusCode.CODE_MAX_LENGTH);
+        final long longitudeValue = OpenLocationCode.longitudeToInteger(normalizedLongitude);
+        final int level = nearestLevel(latitudeValue, longitudeValue, heap.capacity);
+        final long height = height(level);
+        final long width = width(level);
+        final long rows = OpenLocationCode.LATITUDE_MAX * 2 * OpenLocationCode.LATITUDE_PRECISION / height;
+        final long columns = OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION / width;
+        final long centerRow = latitudeValue / height;
+        final long centerColumn = longitudeValue / width;
+        // Cells as tall as they are wide (in meters), so that rings grow alike in every direction.
+        final double aspect = ((double) height / OpenLocationCode.LATITUDE_PRECISION)
+                / ((double) width / OpenLocationCode.LONGITUDE_PRECISION * Math.max(1e-9, Math.cos(Math.toRadians(clippedLatitude))));
+        // Rings of cells around the center cell, until no point beyond them can be nearer than the k-th found.
+        // Each ring adds a row above and below, and the columns (as offsets from the center column) in [west, east] not visited yet.
+        long previousWest = 1;
+        long previousEast = 0;
+        for (long ring = 0; ; ring++) {
+            final double halfWidth = Math.ceil(ring * aspect);
+            final boolean around = (2 * halfWidth + 1 >= columns);
+            // Once around the world, each column once.
+            final long west = around ? -(columns - 1) / 2 : -(long) halfWidth;
+            final long east = around ? columns - 1 - (columns - 1) / 2 : (long) halfWidth;
+            for (long row = Math.max(0, centerRow - ring); row <= Math.min(rows - 1, centerRow + ring); row++) {
+                final boolean edge = (row == centerRow - ring || row == centerRow + ring);
+                for (long column = west; column <= east; column++) {
+                    if (! edge && column == previousWest) {
+                        column = previousEast;
+                        continue ;
+                    }
+                    scan(level, row, centerColumn + column, clippedLatitude, normalizedLongitude, heap);
+                }
+            }
+            previousWest = west;
+            previousEast = east;
+            if (heap.size == heap.capacity && heap.distances[0] <= bound(clippedLatitude, normalizedLongitude, centerRow, centerColumn, ring, around ? -1 : (long) halfWidth, level)) {
+                break ;
+            }
+            if (centerRow - ring <= 0 && centerRow + ring >= rows - 1 && around) {
+                break ;
+            }
+        }
+        final int found = heap.sort();
+        for (int i = 0; i < found; i++) {
+            visitor.onPoint(mIndexes[heap.positions[i]], mLatitudes[heap.positions[i]], mLongitudes[heap.positions[i]]);
+        }
+        return found;
+    }
+
+    // Offers the points of the given cell (column wrapping around) to the heap.
+    private void scan(final int level, final long row, final long column, final double latitude, final double longitude, final Heap heap) {
+        final long columns = OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION / width(level);
+        final long wrapped = ((column % columns) + columns) % columns;
+        final int cell = find(level, PlusCode.pack(row * height(level), wrapped * width(level), LEVELS[level]));
+        if (cell == -1) {
+            return;
+        }
+        for (int i = mStarts[level][cell]; i < mStarts[level][cell + 1]; i++) {
+            heap.offer(OpenLocationCode.distance(latitude, longitude, mLatitudes[i], mLongitudes[i]), i);
+        }
+    }
+
+    // Finest level whose 3x3 cells around the coordinates hold at least k points,
+    // or the next finer one when those cells are crowded enough that scanning them all would cost more
+    // than the rings of smaller cells needed to gather k points (about 9 * 400 * k / count cells, at twice the cost of a point).
+    private int nearestLevel(final long latitudeValue, final long longitudeValue, final int k) {
+        final long[] neighbors = new long[8];
+        for (int level = LEVELS.length - 1; level >= 0; level--) {
+            final long cell = PlusCode.pack(latitudeValue, longitudeValue, LEVELS[level]);
+            long count = count(level, cell);
+            for (int i = PlusCode.neighbors(cell, neighbors, 0) - 1; i >= 0; i--) {
+                count += count(level, neighbors[i]);
+            }
+            if (count >= k) {
+                return (level < LEVELS.length - 1 && count * count > 2L * 9 * 400 * k) ? level + 1 : level;
+            }
+        }
+        return 0;
+    }
+
+    // Distance under which no point outside the given rows and columns (-1 when around the world) around the center cell can be, in meters.
+    private static double bound(final double latitude, final double longitude, final long centerRow, final long centerColumn, final long halfHeight, final long halfWidth, final int level) {
+        final long height = height(level);
+        final long width = width(level);
+        final long rows = OpenLocationCode.LATITUDE_MAX * 2 * OpenLocationCode.LATITUDE_PRECISION / height;
+        double bound = Double.MAX_VALUE;
+        // Along a meridian, to the latitudes south and north of the rows.
+        if (centerRow - halfHeight > 0) {
+            bound = Math.min(bound, Math.toRadians(latitude - latitude((centerRow - halfHeight) * height)) * OpenLocationCode.EARTH_RADIUS);
+        }
+        if (centerRow + halfHeight < rows - 1) {
+            bound = Math.min(bound, Math.toRadians(latitude((centerRow + halfHeight + 1) * height) - latitude) * OpenLocationCode.EARTH_RADIUS);
+        }
+        // To the great circles of the meridians west and east of the columns.
+        if (halfWidth != -1) {
+            final double west = longitude - ((centerColumn - halfWidth) * width / (double) OpenLocationCode.LONGITUDE_PRECISION - OpenLocationCode.LONGITUDE_MAX);
+            final double east = ((centerColumn + halfWidth + 1) * width / (double) OpenLocationCode.LONGITUDE_PRECISION - OpenLocationCode.LONGITUDE_MAX) - longitude;
+            final double degrees = Math.min(90, Math.min(west, east));
+            bound = Math.min(bound, Math.asin(Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(degrees))) * OpenLocationCode.EARTH_RADIUS);
+        }
+        return bound;
+    }
+
+    private static double latitude(final long latitudeValue) {
+        return (double) latitudeValue / OpenLocationCode.LATITUDE_PRECISION - OpenLocationCode.LATITUDE_MAX;
+    }
+
+    // Like OpenLocationCode.longitudeToInteger(), but keeping 180 as the eastern edge of boxes.
+    private static long longitudeValue(final double longitude) {
+        return Math.min(OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION - 1,
+                (long) (Math.round((longitude + OpenLocationCode.LONGITUDE_MAX) * OpenLocationCode.LONGITUDE_PRECISION * 1e6) / 1e6));
+    }
+
+    private static long height(final int level) {
+        return OpenLocationCode.latitudePlaceValue(LEVELS[level]);
+    }
+
+    private static long width(final int level) {
+        return OpenLocationCode.longitudePlaceValue(LEVELS[level]);
+    }
+
+    // Position of the cell within its level, or -1 if it holds no point.
+    private int find(final int level, final long cell) {
+        final int position = Arrays.binarySearch(mCells[level], cell);
+        return (position < 0) ? -1 : position;
+    }
+
+    private int count(final int level, final long cell) {
+        final int position = find(level, cell);
+        return (position == -1) ? 0 : mStarts[level][position + 1] - mStarts[level][position];
+    }
+
+    // Quicksort of codes[lo, hi] carrying indexes along.
+    static void sort(final long[] codes, final int[] indexes, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            final int middle = (lo + hi) >>> 1;
+            // Median of three as pivot.
+            if (codes[middle] < codes[lo]) {
+                swap(codes, indexes, middle, lo);
+            }
+            if (codes[hi] < codes[lo]) {
+                swap(codes, indexes, hi, lo);
+            }
+            if (codes[hi] < codes[middle]) {
+                swap(codes, indexes, hi, middle);
+            }
+            final long pivot = codes[middle];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (codes[i] < pivot) {
+                    i += 1;
+                }
+                while (codes[j] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(codes, indexes, i++, j--);
+                }
+            }
+            // Recurses into the smaller side only, so that the stack stays logarithmic.
+            if (j - lo < hi - i) {
+                sort(codes, indexes, lo, j);
+                lo = i;
+            }
+            else {
+                sort(codes, indexes, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            final long code = codes[i];
+            final int index = indexes[i];
+            int j = i - 1;
+            while (j >= lo && codes[j] > code) {
+                codes[j + 1] = codes[j];
+                indexes[j + 1] = indexes[j];
+                j -= 1;
+            }
+            codes[j + 1] = code;
+            indexes[j + 1] = index;
+        }
+    }
+
+    private static void swap(final long[] codes, final int[] indexes, final int i, final int j) {
+        final long code = codes[i];
+        codes[i] = codes[j];
+        codes[j] = code;
+        final int index = indexes[i];
+        indexes[i] = indexes[j];
+        indexes[j] = index;
+    }
+
+    // Max-heap of the nearest points so far, by distance.
+    private static final class Heap {
+
+        final int capacity;
+        final double[] distances;
+        final int[] positions;
+        int size;
+
+        Heap(final int capacity) {
+            this.capacity = capacity;
+            distances = new double[capacity];
+            positions = new int[capacity];
+        }
+
+        void offer(final double distance, final int position) {
+            if (size < capacity) {
+                int index = size++;
+                while (index > 0 && distances[(index - 1) / 2] < distance) {
+                    distances[index] = distances[(index - 1) / 2];
+                    positions[index] = positions[(index - 1) / 2];
+                    index = (index - 1) / 2;
+                }
+                distances[index] = distance;
+                positions[index] = position;
+            }
+            else if (distance < distances[0]) {
+                siftDown(size, distance, position);
+            }
+        }
+
+        // Sorts in place, nearest first, and returns the size.
+        int sort() {
+            for (int end = size - 1; end > 0; end--) {
+                final double distance = distances[end];
+                final int position = positions[end];
+                distances[end] = distances[0];
+                positions[end] = positions[0];
+                siftDown(end, distance, position);
+            }
+            return size;
+        }
+
+        // Replaces the root of the first count entries.
+        private void siftDown(final int count, final double distance, final int position) {
+            int index = 0;
+            while (2 * index + 1 < count) {
+                int child = 2 * index + 1;
+                if (child + 1 < count && distances[child + 1] > distances[child]) {
+                    child += 1;
+                }
+                if (distances[child] <= distance) {
+                    break ;
+                }
+                distances[index] = distances[child];
+                positions[index] = positions[child];
+                index = child;
+            }
+            distances[index] = distance;
+            positions[index] = position;
+        }
+
+    }
+
+}
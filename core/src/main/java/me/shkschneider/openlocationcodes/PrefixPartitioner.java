@@ -0,0 +1,284 @@
+package me.shkschneider.openlocationcodes;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Immutable split of the world into shards of about equal weight, each a run of consecutive cells in code order, safe for concurrent readers.
+// Full codes sort like their cells nest, so a run of cells is spatially compact and is found by a binary search over the
+// packed prefixes where the shards start. The prefixes come from a histogram of the data: cells holding more than a fraction
+// of a shard are split into their children (down to CODE_MAX_LENGTH digits) so that dense cities get long prefixes and
+// empty oceans short ones, then the cells are dealt in code order to shards sized against what remains to deal.
+// A single cell of CODE_MAX_LENGTH digits heavier than a shard cannot be split, so shards may come out fewer or uneven around it.
+// The split table serializes with toByteArray(), for every node to load the same one with fromByteArray().
+public class PrefixPartitioner {
+
+    private static final int MAGIC = 0x4F4C4350;
+    private static final int VERSION = 1;
+    // Cells heavier than a shard divided by this get split.
+    private static final int CELLS_PER_SHARD = 16;
+
+    // Packed prefix where each shard but the first starts, ascending.
+    private final long[] mBoundaries;
+    // Weight of each shard in the histogram it was built from.
+    private final long[] mWeights;
+
+    private PrefixPartitioner(final long[] boundaries, final long[] weights) {
+        mBoundaries = boundaries;
+        mWeights = weights;
+    }
+
+    public int shards() {
+        return mWeights.length;
+    }
+
+    public long weight(final int shard) {
+        return mWeights[shard];
+    }
+
+    // Copy of the packed prefixes where shards 1 to shards() - 1 start.
+    public long[] boundaries() {
+        return mBoundaries.clone();
+    }
+
+    public int shardOf(final double latitude, final double longitude) throws IllegalArgumentException {
+        return shard(PlusCode.pack(latitude, longitude, PlusCode.CODE_MAX_LENGTH));
+    }
+
+    // Codes spanning several shards (shorter than the prefixes within them) belong to the shard of their south-west corner.
+    public int shardOf(final long packed) throws IllegalArgumentException {
+        checkFull(packed);
+        return shard(PlusCode.descendant(packed));
+    }
+
+    public int shardOf(final CharSequence code) throws IllegalArgumentException {
+        return shardOf(PlusCode.pack(code));
+    }
+
+    // Shards of the points [from, to) into out at outOffset.
+    public void shardOf(final double[] latitudes, final double[] longitudes, final int from, final int to, final int[] out, final int outOffset) throws IllegalArgumentException {
+        OpenLocationCode.checkBatch(Math.min(latitudes.length, longitudes.length), from, to, PlusCode.CODE_MAX_LENGTH, out.length, outOffset);
+        for (int i = from; i < to; i++) {
+            out[outOffset + i - from] = shard(PlusCode.pack(latitudes[i], longitudes[i], PlusCode.CODE_MAX_LENGTH));
+        }
+    }
+
+    // Number of boundaries at or below the full-length code.
+    private int shard(final long key) {
+        int lo = 0;
+        int hi = mBoundaries.length;
+        while (lo < hi) {
+            final int middle = (lo + hi) >>> 1;
+            if (mBoundaries[middle] <= key) {
+                lo = middle + 1;
+            }
+            else {
+                hi = middle;
+            }
+        }
+        return lo;
+    }
+
+    // Serialization
+
+    // Magic, version, number of shards, then the boundaries and the weights.
+    public byte[] toByteArray() {
+        final ByteBuffer buffer = ByteBuffer.allocate(12 + 8 * (mBoundaries.length + mWeights.length));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(mWeights.length);
+        for (final long boundary : mBoundaries) {
+            buffer.putLong(boundary);
+        }
+        for (final long weight : mWeights) {
+            buffer.putLong(weight);
+        }
+        return buffer.array();
+    }
+
+    public static PrefixPartitioner fromByteArray(final byte[] bytes) throws IllegalArgumentException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a prefix partitioner");
+            }
+            final int shards = buffer.getInt();
+            if (shards < 1 || buffer.remaining() != 8L * (2 * shards - 1)) {
+                throw new IllegalArgumentException("Truncated or corrupt prefix partitioner");
+            }
+            final long[] boundaries = new long[shards - 1];
+            for (int i = 0; i < boundaries.length; i++) {
+                boundaries[i] = buffer.getLong();
+                if (PlusCode.isShort(boundaries[i]) || ! PlusCode.isValid(boundaries[i]) || (i > 0 && boundaries[i] <= boundaries[i - 1])) {
+                    throw new IllegalArgumentException("Invalid prefix partitioner boundary: " + boundaries[i]);
+                }
+            }
+            final long[] weights = new long[shards];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = buffer.getLong();
+            }
+            return new PrefixPartitioner(boundaries, weights);
+        }
+        catch (final BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated or corrupt prefix partitioner");
+        }
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (! (object instanceof PrefixPartitioner)) {
+            return false;
+        }
+        final PrefixPartitioner partitioner = (PrefixPartitioner) object;
+        return Arrays.equals(mBoundaries, partitioner.mBoundaries) && Arrays.equals(mWeights, partitioner.mWeights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(mBoundaries) + Arrays.hashCode(mWeights);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder("PrefixPartitioner{shards=").append(mWeights.length).append(", boundaries=[");
+        for (int i = 0; i < mBoundaries.length; i++) {
+            stringBuilder.append((i > 0) ? ", " : "").append(PlusCode.unpack(mBoundaries[i]));
+        }
+        return stringBuilder.append("]}").toString();
+    }
+
+    private static void checkFull(final long packed) throws IllegalArgumentException {
+        if (PlusCode.isShort(packed) || ! PlusCode.isValid(packed)) {
+            throw new IllegalArgumentException("Passed value is not a packed full Open Location Code: " + packed);
+        }
+    }
+
+    // Histogram of weights per cell of CODE_MAX_LENGTH digits (codes shorter count towards their south-west corner), not thread-safe.
+    // Histograms of several nodes merge by adding the cells and weights of one to another, for example from a CellAggregator.Snapshot.
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        // Weight of each full-length key, indexed alike with the keys.
+        private final LongIndexMap mKeys = new LongIndexMap(INITIAL_CAPACITY);
+        private long[] mWeights = new long[INITIAL_CAPACITY];
+
+        public Builder add(final double latitude, final double longitude) throws IllegalArgumentException {
+            put(PlusCode.pack(latitude, longitude, PlusCode.CODE_MAX_LENGTH), 1);
+            return this;
+        }
+
+        public Builder add(final long packed) throws IllegalArgumentException {
+            return add(packed, 1);
+        }
+
+        public Builder add(final long packed, final long weight) throws IllegalArgumentException {
+            checkFull(packed);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            put(PlusCode.descendant(packed), weight);
+            return this;
+        }
+
+        public Builder add(final CharSequence code) throws IllegalArgumentException {
+            return add(PlusCode.pack(code), 1);
+        }
+
+        // At most the given number of shards, fewer if the histogram has too few cells to fill them.
+        public PrefixPartitioner build(final int shards) throws IllegalArgumentException {
+            if (shards < 1) {
+                throw new IllegalArgumentException("Invalid number of shards: " + shards);
+            }
+            // Sorts the cells, carrying their index.
+            final long[] keys = mKeys.keys();
+            final int n = keys.length;
+            final int[] indexes = new int[n];
+            for (int i = 0; i < n; i++) {
+                indexes[i] = i;
+            }
+            PointIndex.sort(keys, indexes, 0, n - 1);
+            // Running sums, so that the weight of any run of cells is a difference.
+            final long[] sums = new long[n + 1];
+            for (int i = 0; i < n; i++) {
+                sums[i + 1] = sums[i] + mWeights[indexes[i]];
+            }
+            final Splitter splitter = new Splitter(keys, sums, shards);
+            splitter.split(0, n, 0);
+            return splitter.partitioner();
+        }
+
+        private void put(final long key, final long weight) {
+            final int index = mKeys.put(key);
+            if (index == mWeights.length) {
+                mWeights = Arrays.copyOf(mWeights, index * 2);
+            }
+            mWeights[index] += weight;
+        }
+
+    }
+
+    // Walks the cells of the sorted keys depth-first (in code order), dealing the cells light enough to keep whole to shards.
+    private static final class Splitter {
+
+        private final long[] mKeys;
+        private final long[] mSums;
+        private final int mShards;
+        private final long mMaxCell;
+        private final long[] mBoundaries;
+        private final long[] mWeights;
+        private int mShard;
+        private long mDealt;
+        // Weight the current shard should reach, from what remained to deal when it started.
+        private double mTarget;
+
+        Splitter(final long[] keys, final long[] sums, final int shards) {
+            mKeys = keys;
+            mSums = sums;
+            mShards = shards;
+            final long total = sums[keys.length];
+            mMaxCell = Math.max(1, total / shards / CELLS_PER_SHARD);
+            mBoundaries = new long[shards - 1];
+            mWeights = new long[shards];
+            mTarget = (double) total / shards;
+        }
+
+        // Splits keys [from, to), all within one cell of the given length (0 for the whole world), into the cells of the next length.
+        void split(final int from, final int to, final int codeLength) {
+            final int childLength = (codeLength < OpenLocationCode.PAIR_CODE_LENGTH) ? codeLength + 2 : codeLength + 1;
+            int start = from;
+            while (start < to) {
+                final long child = PlusCode.parent(mKeys[start], childLength);
+                // Keys of the child run up to its range's end.
+                final long max = PlusCode.rangeMax(child);
+                int end = start + 1;
+                while (end < to && mKeys[end] <= max) {
+                    end += 1;
+                }
+                final long weight = mSums[end] - mSums[start];
+                if (weight <= mMaxCell || childLength == PlusCode.CODE_MAX_LENGTH) {
+                    deal(child, weight);
+                }
+                else {
+                    split(start, end, childLength);
+                }
+                start = end;
+            }
+        }
+
+        // Starts a new shard at the cell when adding it to the current one would overshoot its target by more than half the cell.
+        private void deal(final long cell, final long weight) {
+            if (mWeights[mShard] > 0 && mShard < mShards - 1 && mWeights[mShard] + weight / 2.0 > mTarget) {
+                mBoundaries[mShard] = cell;
+                mShard += 1;
+                mTarget = (double) (mSums[mKeys.length] - mDealt) / (mShards - mShard);
+            }
+            mWeights[mShard] += weight;
+            mDealt += weight;
+        }
+
+        PrefixPartitioner partitioner() {
+            return new PrefixPartitioner(Arrays.copyOf(mBoundaries, mShard), Arrays.copyOf(mWeights, mShard + 1));
+        }
+
+    }
+
+}
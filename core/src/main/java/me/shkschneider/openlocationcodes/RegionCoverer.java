@@ -0,0 +1,453 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Covers a box or a polygon with a small set of cells of mixed lengths, in the spirit of S2's RegionCoverer.
+// Cells are classified as interior, boundary or disjoint; interior cells are kept whole
+// and only boundary cells are split into their 400 (or 20, past 10 digits) children, largest first,
+// for as long as the covering stays within maxCells (a soft limit: cells at minCodeLength are always used).
+// Boxes are half-open ([lo, hi) like the cells themselves) and may cross the antimeridian (longitudeLo > longitudeHi).
+// Polygons are simple, implicitly closed, and must not cross the antimeridian.
+// Instances are immutable and can be shared across threads.
+public class RegionCoverer {
+
+    private static final int INTERIOR = 1;
+    private static final int BOUNDARY = 2;
+
+    private static final Comparator<Cell> LARGEST_FIRST = new Comparator<Cell>() {
+        @Override
+        public int compare(final Cell cell1, final Cell cell2) {
+            return (cell1.codeLength < cell2.codeLength) ? -1 : ((cell1.codeLength == cell2.codeLength) ? 0 : 1);
+        }
+    };
+    // Same order as the codes as strings.
+    private static final Comparator<Cell> CODE_ORDER = new Comparator<Cell>() {
+        @Override
+        public int compare(final Cell cell1, final Cell cell2) {
+            for (int digit = 0; digit < Math.min(cell1.codeLength, cell2.codeLength); digit++) {
+                final int value1 = OpenLocationCode.digitAt(cell1.latitudeValue, cell1.longitudeValue, digit);
+                final int value2 = OpenLocationCode.digitAt(cell2.latitudeValue, cell2.longitudeValue, digit);
+                if (value1 != value2) {
+                    return (value1 < value2) ? -1 : 1;
+                }
+            }
+            return (cell1.codeLength < cell2.codeLength) ? -1 : ((cell1.codeLength == cell2.codeLength) ? 0 : 1);
+        }
+    };
+
+    private final int mMinCodeLength;
+    private final int mMaxCodeLength;
+    private final int mMaxCells;
+
+    public RegionCoverer(final int minCodeLength, final int maxCodeLength, final int maxCells) throws IllegalArgumentException {
+        OpenLocationCode.encodedLength(minCodeLength);
+        OpenLocationCode.encodedLength(maxCodeLength);
+        if (minCodeLength > maxCodeLength) {
+            throw new IllegalArgumentException("Invalid code lengths: " + minCodeLength + "-" + maxCodeLength);
+        }
+        if (maxCells < 1) {
+            throw new IllegalArgumentException("Invalid maximum cells: " + maxCells);
+        }
+        mMinCodeLength = minCodeLength;
+        mMaxCodeLength = maxCodeLength;
+        mMaxCells = maxCells;
+    }
+
+    // Cells in code order.
+    public List<OpenLocationCode.CodeArea> cover(final double latitudeLo, final double longitudeLo, final double latitudeHi, final double longitudeHi) throws IllegalArgumentException {
+        return codeAreas(cover(box(latitudeLo, longitudeLo, latitudeHi, longitudeHi)));
+    }
+
+    // Polygon given by its vertices.
+    public List<OpenLocationCode.CodeArea> cover(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        return codeAreas(cover(polygon(latitudes, longitudes)));
+    }
+
+    // Packed codes in ascending order, for maxCodeLength up to PlusCode.CODE_MAX_LENGTH.
+    public long[] coverPacked(final double latitudeLo, final double longitudeLo, final double latitudeHi, final double longitudeHi) throws IllegalArgumentException {
+        checkPackable();
+        return packed(cover(box(latitudeLo, longitudeLo, latitudeHi, longitudeHi)));
+    }
+
+    public long[] coverPacked(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        checkPackable();
+        return packed(cover(polygon(latitudes, longitudes)));
+    }
+
+    private void checkPackable() throws IllegalArgumentException {
+        if (mMaxCodeLength > PlusCode.CODE_MAX_LENGTH) {
+            throw new IllegalArgumentException("Open Location Code length too long to pack: " + mMaxCodeLength);
+        }
+    }
+
+    private static Region box(final double latitudeLo, final double longitudeLo, final double latitudeHi, final double longitudeHi) throws IllegalArgumentException {
+        if (Double.isNaN(latitudeLo) || Double.isNaN(longitudeLo) || Double.isNaN(latitudeHi) || Double.isNaN(longitudeHi) || latitudeLo > latitudeHi) {
+            throw new IllegalArgumentException("Invalid box: " + latitudeLo + "," + longitudeLo + " " + latitudeHi + "," + longitudeHi);
+        }
+        final double south = latitudeValue(Math.max(-OpenLocationCode.LATITUDE_MAX, latitudeLo));
+        final double north = latitudeValue(Math.min(OpenLocationCode.LATITUDE_MAX, latitudeHi));
+        final double west = longitudeValue(Math.max(-OpenLocationCode.LONGITUDE_MAX, Math.min(OpenLocationCode.LONGITUDE_MAX, longitudeLo)));
+        final double east = longitudeValue(Math.max(-OpenLocationCode.LONGITUDE_MAX, Math.min(OpenLocationCode.LONGITUDE_MAX, longitudeHi)));
+        if (west > east) {
+            // Crosses the antimeridian: two boxes.
+            return new Region(new double[] { south, west, north, longitudeValue(OpenLocationCode.LONGITUDE_MAX), south, 0, north, east });
+        }
+        return new Region(new double[] { south, west, north, east });
+    }
+
+    private static Region polygon(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        if (latitudes.length != longitudes.length || latitudes.length < 3) {
+            throw new IllegalArgumentException("Invalid polygon: " + latitudes.length + " latitudes and " + longitudes.length + " longitudes");
+        }
+        for (int i = 0; i < latitudes.length; i++) {
+            if (! (Math.abs(latitudes[i]) <= OpenLocationCode.LATITUDE_MAX && Math.abs(longitudes[i]) <= OpenLocationCode.LONGITUDE_MAX)) {
+                throw new IllegalArgumentException("Invalid polygon vertex: " + latitudes[i] + "," + longitudes[i]);
+            }
+        }
+        final double[] latitudeValues = new double[latitudes.length];
+        final double[] longitudeValues = new double[longitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudeValues[i] = latitudeValue(latitudes[i]);
+            longitudeValues[i] = longitudeValue(longitudes[i]);
+        }
+        return new Region(latitudeValues, longitudeValues);
+    }
+
+    private List<Cell> cover(final Region region) {
+        final List<Cell> covering = new ArrayList<Cell>();
+        final PriorityQueue<Cell> candidates = new PriorityQueue<Cell>(64, LARGEST_FIRST);
+        final List<Cell> children = new ArrayList<Cell>();
+        // The whole world as a cell of length 0, to start from.
+        children(region, new Cell(0, 0, 0, false, region.allEdges()), children);
+        while (true) {
+            for (final Cell child : children) {
+                if (child.interior && child.codeLength >= mMinCodeLength) {
+                    covering.add(child);
+                }
+                else {
+                    candidates.add(child);
+                }
+            }
+            children.clear();
+            final Cell cell = candidates.poll();
+            if (cell == null) {
+                break ;
+            }
+            if (cell.codeLength < mMinCodeLength) {
+                children(region, cell, children);
+                continue ;
+            }
+            // Splitting a boundary cell almost always yields more than one cell, so it is not even tried at the limit.
+            if (cell.codeLength < mMaxCodeLength && covering.size() + candidates.size() + 2 <= mMaxCells) {
+                children(region, cell, children);
+                if (covering.size() + candidates.size() + children.size() <= mMaxCells) {
+                    continue ;
+                }
+                children.clear();
+            }
+            covering.add(cell);
+        }
+        Collections.sort(covering, CODE_ORDER);
+        return covering;
+    }
+
+    // Children of cell which are not disjoint from region.
+    private static void children(final Region region, final Cell cell, final List<Cell> out) {
+        final int codeLength = (cell.codeLength < OpenLocationCode.PAIR_CODE_LENGTH) ? cell.codeLength + 2 : cell.codeLength + 1;
+        final long height = OpenLocationCode.latitudePlaceValue(codeLength);
+        final long width = OpenLocationCode.longitudePlaceValue(codeLength);
+        final long rows;
+        final long columns;
+        if (cell.codeLength == 0) {
+            rows = OpenLocationCode.LATITUDE_MAX * 2 * OpenLocationCode.LATITUDE_PRECISION / height;
+            columns = OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION / width;
+        }
+        else {
+            rows = OpenLocationCode.latitudePlaceValue(cell.codeLength) / height;
+            columns = OpenLocationCode.longitudePlaceValue(cell.codeLength) / width;
+        }
+        // Only rows and columns within the bounding box of the region.
+        final long firstRow = Math.max(0, (long) Math.floor((region.latitudeLo - cell.latitudeValue) / height));
+        final long lastRow = Math.min(rows - 1, (long) Math.floor((region.latitudeHi - cell.latitudeValue) / height));
+        final long firstColumn = Math.max(0, (long) Math.floor((region.longitudeLo - cell.longitudeValue) / width));
+        final long lastColumn = Math.min(columns - 1, (long) Math.floor((region.longitudeHi - cell.longitudeValue) / width));
+        if (firstRow > lastRow || firstColumn > lastColumn) {
+            return;
+        }
+        final int columnCount = (int) (lastColumn - firstColumn + 1);
+        final int[][] edges = (cell.interior || region.boxes != null) ? null : bucket(region, cell, height, width, firstRow, lastRow, firstColumn, lastColumn);
+        for (long row = firstRow; row <= lastRow; row++) {
+            final long latitudeValue = cell.latitudeValue + row * height;
+            // Crossings of the row's center line, computed once for the whole row if needed.
+            double[] crossings = null;
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                final long longitudeValue = cell.longitudeValue + column * width;
+                if (cell.interior) {
+                    out.add(new Cell(latitudeValue, longitudeValue, codeLength, true, null));
+                    continue ;
+                }
+                if (region.boxes != null) {
+                    final int relation = region.relation(latitudeValue, longitudeValue, latitudeValue + height, longitudeValue + width);
+                    if (relation != 0) {
+                        out.add(new Cell(latitudeValue, longitudeValue, codeLength, relation == INTERIOR, null));
+                    }
+                    continue ;
+                }
+                final int[] childEdges = edges[(int) (row - firstRow) * columnCount + (int) (column - firstColumn)];
+                if (childEdges != null) {
+                    out.add(new Cell(latitudeValue, longitudeValue, codeLength, false, trim(childEdges)));
+                    continue ;
+                }
+                // No edge goes through the cell: it is wholly inside or outside, like its center.
+                if (crossings == null) {
+                    crossings = region.crossings(latitudeValue + height / 2.0);
+                }
+                if (isInside(crossings, longitudeValue + width / 2.0)) {
+                    out.add(new Cell(latitudeValue, longitudeValue, codeLength, true, null));
+                }
+            }
+        }
+    }
+
+    // Edges of cell going through each of the given children (row-major, null for none), each list ending with its size.
+    // Each edge is only tested against the children within its bounding box.
+    private static int[][] bucket(final Region region, final Cell cell, final long height, final long width,
+                                  final long firstRow, final long lastRow, final long firstColumn, final long lastColumn) {
+        final int columnCount = (int) (lastColumn - firstColumn + 1);
+        final int[][] edges = new int[(int) (lastRow - firstRow + 1) * columnCount][];
+        for (final int edge : cell.edges) {
+            final int next = region.next(edge);
+            // Children are closed, so an edge on a boundary belongs to the children on both sides.
+            final long edgeFirstRow = Math.max(firstRow, (long) Math.ceil((Math.min(region.latitudes[edge], region.latitudes[next]) - cell.latitudeValue) / height) - 1);
+            final long edgeLastRow = Math.min(lastRow, (long) Math.floor((Math.max(region.latitudes[edge], region.latitudes[next]) - cell.latitudeValue) / height));
+            final long edgeFirstColumn = Math.max(firstColumn, (long) Math.ceil((Math.min(region.longitudes[edge], region.longitudes[next]) - cell.longitudeValue) / width) - 1);
+            final long edgeLastColumn = Math.min(lastColumn, (long) Math.floor((Math.max(region.longitudes[edge], region.longitudes[next]) - cell.longitudeValue) / width));
+            for (long row = edgeFirstRow; row <= edgeLastRow; row++) {
+                final long latitudeValue = cell.latitudeValue + row * height;
+                for (long column = edgeFirstColumn; column <= edgeLastColumn; column++) {
+                    final long longitudeValue = cell.longitudeValue + column * width;
+                    if (! region.intersects(edge, latitudeValue, longitudeValue, latitudeValue + height, longitudeValue + width)) {
+                        continue ;
+                    }
+                    final int index = (int) (row - firstRow) * columnCount + (int) (column - firstColumn);
+                    edges[index] = append(edges[index], edge);
+                }
+            }
+        }
+        return edges;
+    }
+
+    // Appends to a list whose last slot holds its size.
+    private static int[] append(int[] list, final int value) {
+        if (list == null) {
+            list = new int[4];
+        }
+        final int size = list[list.length - 1];
+        if (size == list.length - 1) {
+            list = Arrays.copyOf(list, list.length * 2);
+            list[list.length - 1] = size;
+        }
+        list[size] = value;
+        list[list.length - 1] = size + 1;
+        return list;
+    }
+
+    private static int[] trim(final int[] list) {
+        return Arrays.copyOf(list, list[list.length - 1]);
+    }
+
+    // Even-odd rule: the point is inside if an odd number of crossings lie east of it.
+    private static boolean isInside(final double[] crossings, final double longitude) {
+        int index = Arrays.binarySearch(crossings, longitude);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        else {
+            while (index < crossings.length && crossings[index] <= longitude) {
+                index += 1;
+            }
+        }
+        return ((crossings.length - index) % 2) == 1;
+    }
+
+    // Region geometry is done in (fractional) integer units, rounded like encode() does,
+    // so that edges on cell boundaries match them exactly.
+    private static double latitudeValue(final double latitude) {
+        return Math.round((latitude + OpenLocationCode.LATITUDE_MAX) * OpenLocationCode.LATITUDE_PRECISION * 1e6) / 1e6;
+    }
+
+    private static double longitudeValue(final double longitude) {
+        return Math.round((longitude + OpenLocationCode.LONGITUDE_MAX) * OpenLocationCode.LONGITUDE_PRECISION * 1e6) / 1e6;
+    }
+
+    private static List<OpenLocationCode.CodeArea> codeAreas(final List<Cell> cells) {
+        final List<OpenLocationCode.CodeArea> codeAreas = new ArrayList<OpenLocationCode.CodeArea>(cells.size());
+        for (final Cell cell : cells) {
+            // Areas are built from signed units, cells are kept in the positive units digits are computed from.
+            codeAreas.add(OpenLocationCode.codeArea(cell.latitudeValue - OpenLocationCode.LATITUDE_MAX * OpenLocationCode.LATITUDE_PRECISION,
+                    cell.longitudeValue - OpenLocationCode.LONGITUDE_MAX * OpenLocationCode.LONGITUDE_PRECISION, cell.codeLength));
+        }
+        return codeAreas;
+    }
+
+    private static long[] packed(final List<Cell> cells) {
+        final long[] packed = new long[cells.size()];
+        for (int i = 0; i < packed.length; i++) {
+            final Cell cell = cells.get(i);
+            packed[i] = PlusCode.pack(cell.latitudeValue, cell.longitudeValue, cell.codeLength);
+        }
+        return packed;
+    }
+
+    // Cell by the integer coordinates of its south-west corner.
+    private static final class Cell {
+
+        final long latitudeValue;
+        final long longitudeValue;
+        final int codeLength;
+        final boolean interior;
+        // Polygon edges going through the cell (null for boxes and interior cells).
+        final int[] edges;
+
+        Cell(final long latitudeValue, final long longitudeValue, final int codeLength, final boolean interior, final int[] edges) {
+            this.latitudeValue = latitudeValue;
+            this.longitudeValue = longitudeValue;
+            this.codeLength = codeLength;
+            this.interior = interior;
+            this.edges = edges;
+        }
+
+    }
+
+    // One or two boxes, or a polygon; with its bounding box. All in integer units.
+    private static final class Region {
+
+        // south, west, north, east for each box.
+        final double[] boxes;
+        final double[] latitudes;
+        final double[] longitudes;
+        final double latitudeLo;
+        final double longitudeLo;
+        final double latitudeHi;
+        final double longitudeHi;
+
+        Region(final double[] boxes) {
+            this.boxes = boxes;
+            this.latitudes = null;
+            this.longitudes = null;
+            latitudeLo = boxes[0];
+            latitudeHi = boxes[2];
+            longitudeLo = (boxes.length > 4) ? 0 : boxes[1];
+            longitudeHi = boxes[3];
+        }
+
+        Region(final double[] latitudes, final double[] longitudes) {
+            this.boxes = null;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            double south = Double.MAX_VALUE;
+            double west = Double.MAX_VALUE;
+            double north = -Double.MAX_VALUE;
+            double east = -Double.MAX_VALUE;
+            for (int i = 0; i < latitudes.length; i++) {
+                south = Math.min(south, latitudes[i]);
+                west = Math.min(west, longitudes[i]);
+                north = Math.max(north, latitudes[i]);
+                east = Math.max(east, longitudes[i]);
+            }
+            latitudeLo = south;
+            longitudeLo = west;
+            latitudeHi = north;
+            longitudeHi = east;
+        }
+
+        int[] allEdges() {
+            if (latitudes == null) {
+                return null;
+            }
+            final int[] edges = new int[latitudes.length];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = i;
+            }
+            return edges;
+        }
+
+        // INTERIOR, BOUNDARY or 0 (disjoint) for the cell [south, north) x [west, east) against the boxes.
+        int relation(final double south, final double west, final double north, final double east) {
+            int relation = 0;
+            for (int i = 0; i < boxes.length; i += 4) {
+                if (south >= boxes[i] && west >= boxes[i + 1] && north <= boxes[i + 2] && east <= boxes[i + 3]) {
+                    return INTERIOR;
+                }
+                if (south < boxes[i + 2] && west < boxes[i + 3] && north > boxes[i] && east > boxes[i + 1]) {
+                    relation = BOUNDARY;
+                }
+            }
+            return relation;
+        }
+
+        int next(final int edge) {
+            return (edge + 1 == latitudes.length) ? 0 : edge + 1;
+        }
+
+        // Whether the given edge touches the closed cell (Liang-Barsky clipping).
+        boolean intersects(final int edge, final double south, final double west, final double north, final double east) {
+            final int next = next(edge);
+            final double x = longitudes[edge];
+            final double y = latitudes[edge];
+            final double dx = longitudes[next] - x;
+            final double dy = latitudes[next] - y;
+            double t0 = 0;
+            double t1 = 1;
+            for (int i = 0; i < 4; i++) {
+                final double p = (i == 0) ? -dx : ((i == 1) ? dx : ((i == 2) ? -dy : dy));
+                final double q = (i == 0) ? x - west : ((i == 1) ? east - x : ((i == 2) ? y - south : north - y));
+                if (p == 0) {
+                    if (q < 0) {
+                        return false;
+                    }
+                    continue ;
+                }
+                final double t = q / p;
+                if (p < 0) {
+                    if (t > t1) {
+                        return false;
+                    }
+                    t0 = Math.max(t0, t);
+                }
+                else {
+                    if (t < t0) {
+                        return false;
+                    }
+                    t1 = Math.min(t1, t);
+                }
+            }
+            return true;
+        }
+
+        // Sorted longitudes where the polygon crosses the given latitude.
+        double[] crossings(final double latitude) {
+            double[] crossings = new double[8];
+            int count = 0;
+            for (int edge = 0; edge < latitudes.length; edge++) {
+                final int next = next(edge);
+                if ((latitudes[edge] > latitude) != (latitudes[next] > latitude)) {
+                    if (count == crossings.length) {
+                        crossings = Arrays.copyOf(crossings, count * 2);
+                    }
+                    crossings[count++] = longitudes[edge] + (latitude - latitudes[edge]) * (longitudes[next] - longitudes[edge]) / (latitudes[next] - latitudes[edge]);
+                }
+            }
+            crossings = Arrays.copyOf(crossings, count);
+            Arrays.sort(crossings);
+            return crossings;
+        }
+
+    }
+
+}
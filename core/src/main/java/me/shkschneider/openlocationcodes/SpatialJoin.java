@@ -0,0 +1,380 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+
+// Pairs of points from two datasets within a radius of each other (great-circle distance, inclusive).
+// Both sides are bucketed by their cell of a code length derived from the radius, as rows and columns of that grid,
+// and sorted by bucket so that the buckets of a row form one contiguous range: each bucket of the first side looks up
+// the ranges of rows and columns around it that can hold points within the radius (wider near the poles, wrapping
+// around the antimeridian), and only those candidates get the exact distance check.
+// ParallelBatch.join() runs the same join over a ForkJoinPool, split by buckets of the first side.
+public class SpatialJoin {
+
+    private static final int[] LENGTHS = { 11, 10, 8, 6, 4, 2 };
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final double mRadius;
+    private final int mCodeLength;
+    // Grid of the code length, in integer units.
+    private final long mHeight;
+    private final long mWidth;
+    private final long mRows;
+    private final long mColumns;
+    // Central angle of the radius, and the haversine of it under which pairs match.
+    private final double mAngle;
+    private final double mMaxHaversine;
+
+    // Buckets by the longest code length whose cells are at least half the radius high.
+    public SpatialJoin(final double radius) throws IllegalArgumentException {
+        this(radius, codeLength(radius));
+    }
+
+    public SpatialJoin(final double radius, final int codeLength) throws IllegalArgumentException {
+        if (! (radius > 0) || Double.isInfinite(radius)) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+        if (codeLength < 2 || codeLength > PlusCode.CODE_MAX_LENGTH || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+            throw new IllegalArgumentException("Invalid Open Location Code length: " + codeLength);
+        }
+        mRadius = radius;
+        mCodeLength = codeLength;
+        mHeight = OpenLocationCode.latitudePlaceValue(codeLength);
+        mWidth = OpenLocationCode.longitudePlaceValue(codeLength);
+        mRows = OpenLocationCode.LATITUDE_MAX * 2 * OpenLocationCode.LATITUDE_PRECISION / mHeight;
+        mColumns = OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION / mWidth;
+        mAngle = radius / OpenLocationCode.EARTH_RADIUS;
+        // Past half the circumference, everything matches.
+        mMaxHaversine = (mAngle >= Math.PI) ? Double.MAX_VALUE : Math.pow(Math.sin(mAngle / 2), 2);
+    }
+
+    private static int codeLength(final double radius) {
+        for (final int codeLength : LENGTHS) {
+            if (Distances.cellHeight(codeLength) >= radius / 2) {
+                return codeLength;
+            }
+        }
+        return LENGTHS[LENGTHS.length - 1];
+    }
+
+    public double radius() {
+        return mRadius;
+    }
+
+    public int codeLength() {
+        return mCodeLength;
+    }
+
+    // Pairs (i, j) of points i of the first side and j of the second side within the radius.
+    public Pairs join(final double[] latitudes1, final double[] longitudes1, final double[] latitudes2, final double[] longitudes2) throws IllegalArgumentException {
+        return join(side(latitudes1, longitudes1), side(latitudes2, longitudes2), false);
+    }
+
+    // Pairs (i, j) of distinct points within the radius, each once with i < j (duplicates within a dataset).
+    public Pairs join(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        final Side side = side(latitudes, longitudes);
+        return join(side, side, true);
+    }
+
+    Pairs join(final Side left, final Side right, final boolean self) {
+        final Buffer buffer = new Buffer();
+        probe(left, right, self, 0, left.cells.length, buffer);
+        return pairs(new Buffer[] { buffer }, left.indexes.length);
+    }
+
+    // Points bucketed and sorted by cell, with their centers.
+    Side side(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        final long[] keys = keys(latitudes, longitudes);
+        keys(latitudes, longitudes, 0, keys.length, keys);
+        final Side side = side(keys);
+        centers(latitudes, longitudes, side, 0, keys.length);
+        return side;
+    }
+
+    // Building a side takes three steps, the first and last of which may run in parallel over ranges of points:
+    // keys() of the points, side() sorting them, then their centers().
+    long[] keys(final double[] latitudes, final double[] longitudes) throws IllegalArgumentException {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Invalid points: " + latitudes.length + " latitudes and " + longitudes.length + " longitudes");
+        }
+        return new long[latitudes.length];
+    }
+
+    void keys(final double[] latitudes, final double[] longitudes, final int from, final int to, final long[] out) throws IllegalArgumentException {
+        for (int i = from; i < to; i++) {
+            if (! (Math.abs(latitudes[i]) <= OpenLocationCode.LATITUDE_MAX && Math.abs(longitudes[i]) <= OpenLocationCode.LONGITUDE_MAX)) {
+                throw new IllegalArgumentException("Invalid point " + i + ": " + latitudes[i] + "," + longitudes[i]);
+            }
+            final long row = OpenLocationCode.latitudeToInteger(latitudes[i], PlusCode.CODE_MAX_LENGTH) / mHeight;
+            final long column = OpenLocationCode.longitudeToInteger(longitudes[i]) / mWidth;
+            out[i] = row * mColumns + column;
+        }
+    }
+
+    // Sorts the keys in place.
+    Side side(final long[] keys) {
+        final int size = keys.length;
+        final int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        PointIndex.sort(keys, indexes, 0, size - 1);
+        int cells = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                cells += 1;
+            }
+        }
+        final Side side = new Side(cells, indexes);
+        int cell = -1;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                cell += 1;
+                side.cells[cell] = keys[i];
+                side.starts[cell] = i;
+            }
+        }
+        side.starts[cells] = size;
+        return side;
+    }
+
+    // Centers of the points at [from, to) in cell order.
+    static void centers(final double[] latitudes, final double[] longitudes, final Side side, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            Distances.center(latitudes[side.indexes[i]], longitudes[side.indexes[i]], side.centers, Distances.CENTER_LENGTH * i);
+        }
+    }
+
+    // Adds the pairs of the points in cells [from, to) of the left side.
+    void probe(final Side left, final Side right, final boolean self, final int from, final int to, final Buffer out) {
+        // Rounding of coordinates to units may move points by one unit.
+        final long latitudeMargin = (long) Math.ceil(Math.toDegrees(mAngle) * OpenLocationCode.LATITUDE_PRECISION) + 1;
+        final int rowSpan = (int) Math.min(mRows, (latitudeMargin + mHeight - 1) / mHeight);
+        // Per row offset, the right cells where the last lookups of its columns started and ended: as left cells ascend,
+        // those only move forward (but for ranges wrapping around), so that the next lookups gallop from there.
+        final int[] starts = new int[2 * rowSpan + 1];
+        final int[] ends = new int[2 * rowSpan + 1];
+        for (int cell = from; cell < to; cell++) {
+            final long row = left.cells[cell] / mColumns;
+            final long column = left.cells[cell] % mColumns;
+            // Columns either side, from the widest longitude span of the cell's latitudes; -1 for the whole row.
+            final double maxLatitude = Math.max(Math.abs(latitude(row * mHeight)), Math.abs(latitude((row + 1) * mHeight)));
+            long span = -1;
+            if (mAngle < Math.PI / 2 && maxLatitude + Math.toDegrees(mAngle) < OpenLocationCode.LATITUDE_MAX) {
+                final double longitudeAngle = Math.asin(Math.min(1, Math.sin(mAngle) / Math.cos(Math.toRadians(maxLatitude))));
+                span = ((long) Math.ceil(Math.toDegrees(longitudeAngle) * OpenLocationCode.LONGITUDE_PRECISION) + 1 + mWidth - 1) / mWidth;
+                if (2 * span + 1 >= mColumns) {
+                    span = -1;
+                }
+            }
+            for (long r = Math.max(0, row - rowSpan); r <= Math.min(mRows - 1, row + rowSpan); r++) {
+                if (span == -1) {
+                    scan(left, right, self, cell, r, 0, mColumns - 1, out);
+                }
+                else if (column - span < 0) {
+                    scan(left, right, self, cell, r, column - span + mColumns, mColumns - 1, out);
+                    scan(left, right, self, cell, r, 0, column + span, out);
+                }
+                else if (column + span >= mColumns) {
+                    scan(left, right, self, cell, r, column - span, mColumns - 1, out);
+                    scan(left, right, self, cell, r, 0, column + span - mColumns, out);
+                }
+                else {
+                    final int offset = (int) (r - row) + rowSpan;
+                    starts[offset] = gallop(right.cells, r * mColumns + column - span, starts[offset]);
+                    ends[offset] = gallop(right.cells, r * mColumns + column + span + 1, Math.max(starts[offset], ends[offset]));
+                    check(left, right, self, cell, starts[offset], ends[offset], out);
+                }
+            }
+        }
+    }
+
+    // Checks the points of the left cell against the right points in columns [columnLo, columnHi] of the row.
+    private void scan(final Side left, final Side right, final boolean self, final int cell, final long row, final long columnLo, final long columnHi, final Buffer out) {
+        final int start = lowerBound(right.cells, row * mColumns + columnLo, 0, right.cells.length);
+        final int end = lowerBound(right.cells, row * mColumns + columnHi + 1, start, right.cells.length);
+        check(left, right, self, cell, start, end, out);
+    }
+
+    // Checks the points of the left cell against the points of right cells [start, end).
+    private void check(final Side left, final Side right, final boolean self, final int cell, final int start, final int end, final Buffer out) {
+        final int first = right.starts[start];
+        final int last = right.starts[end];
+        if (first == last) {
+            return ;
+        }
+        for (int i = left.starts[cell]; i < left.starts[cell + 1]; i++) {
+            final int index = left.indexes[i];
+            for (int j = first; j < last; j++) {
+                if (self && right.indexes[j] <= index) {
+                    continue ;
+                }
+                final double haversine = Distances.haversine(left.centers, Distances.CENTER_LENGTH * i, right.centers, Distances.CENTER_LENGTH * j);
+                if (haversine <= mMaxHaversine) {
+                    out.add(index, right.indexes[j], Distances.meters(haversine));
+                }
+            }
+        }
+    }
+
+    private static double latitude(final long latitudeValue) {
+        return (double) latitudeValue / OpenLocationCode.LATITUDE_PRECISION - OpenLocationCode.LATITUDE_MAX;
+    }
+
+    // Index of the first key at or above the given one within [lo, hi), or hi.
+    private static int lowerBound(final long[] keys, final long key, int lo, int hi) {
+        while (lo < hi) {
+            final int middle = (lo + hi) >>> 1;
+            if (keys[middle] < key) {
+                lo = middle + 1;
+            }
+            else {
+                hi = middle;
+            }
+        }
+        return lo;
+    }
+
+    // Same as lowerBound() over the whole keys, knowing that the ones before from are below the key:
+    // doubles steps forward from there, then searches the last step.
+    private static int gallop(final long[] keys, final long key, int from) {
+        int step = 1;
+        while (from + step - 1 < keys.length && keys[from + step - 1] < key) {
+            from += step;
+            step <<= 1;
+        }
+        return lowerBound(keys, key, from, Math.min(keys.length, from + step - 1));
+    }
+
+    // Merges the buffers, grouped by left index (a counting sort, stable so the result does not depend on the split).
+    static Pairs pairs(final Buffer[] buffers, final int leftSize) {
+        final int[] starts = new int[leftSize + 1];
+        int size = 0;
+        for (final Buffer buffer : buffers) {
+            for (int i = 0; i < buffer.size; i++) {
+                starts[buffer.lefts[i] + 1] += 1;
+            }
+            size += buffer.size;
+        }
+        for (int i = 0; i < leftSize; i++) {
+            starts[i + 1] += starts[i];
+        }
+        final int[] lefts = new int[size];
+        final int[] rights = new int[size];
+        final double[] distances = new double[size];
+        for (final Buffer buffer : buffers) {
+            for (int i = 0; i < buffer.size; i++) {
+                final int position = starts[buffer.lefts[i]]++;
+                lefts[position] = buffer.lefts[i];
+                rights[position] = buffer.rights[i];
+                distances[position] = buffer.distances[i];
+            }
+        }
+        return new Pairs(lefts, rights, distances);
+    }
+
+    static final class Side {
+
+        // Sorted distinct cells (row * columns + column), and the start of their points (one more entry, for the end).
+        final long[] cells;
+        final int[] starts;
+        // Per point, in cell order: its index in the arrays the side was built from, and its Distances.center().
+        final int[] indexes;
+        final double[] centers;
+
+        Side(final int cells, final int[] indexes) {
+            this.cells = new long[cells];
+            starts = new int[cells + 1];
+            this.indexes = indexes;
+            centers = new double[Distances.CENTER_LENGTH * indexes.length];
+        }
+
+        // First cell starting at or after the given point.
+        int cellAt(final int position) {
+            int lo = 0;
+            int hi = cells.length;
+            while (lo < hi) {
+                final int middle = (lo + hi) >>> 1;
+                if (starts[middle] < position) {
+                    lo = middle + 1;
+                }
+                else {
+                    hi = middle;
+                }
+            }
+            return lo;
+        }
+
+    }
+
+    // Growable columns of pairs.
+    static final class Buffer {
+
+        int[] lefts = new int[INITIAL_CAPACITY];
+        int[] rights = new int[INITIAL_CAPACITY];
+        double[] distances = new double[INITIAL_CAPACITY];
+        int size;
+
+        void add(final int left, final int right, final double distance) {
+            if (size == lefts.length) {
+                lefts = Arrays.copyOf(lefts, size * 2);
+                rights = Arrays.copyOf(rights, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            lefts[size] = left;
+            rights[size] = right;
+            distances[size] = distance;
+            size += 1;
+        }
+
+    }
+
+    // Immutable matched pairs, by ascending left index (the pairs of a left point in no particular order), with their distance in meters.
+    public static final class Pairs {
+
+        private final int[] mLefts;
+        private final int[] mRights;
+        private final double[] mDistances;
+
+        private Pairs(final int[] lefts, final int[] rights, final double[] distances) {
+            mLefts = lefts;
+            mRights = rights;
+            mDistances = distances;
+        }
+
+        public int size() {
+            return mLefts.length;
+        }
+
+        public int left(final int index) {
+            return mLefts[index];
+        }
+
+        public int right(final int index) {
+            return mRights[index];
+        }
+
+        public double distance(final int index) {
+            return mDistances[index];
+        }
+
+        // Copies of the columns.
+        public int[] lefts() {
+            return mLefts.clone();
+        }
+
+        public int[] rights() {
+            return mRights.clone();
+        }
+
+        public double[] distances() {
+            return mDistances.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "Pairs{size=" + mLefts.length + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,329 @@
+package me.shkschneider.openlocationcodes;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// Compact binary format for time-ordered tracks of fixes, as runs of consecutive fixes within the same cell of a chosen code length.
+// Positions are kept to the cell (decoding gives its center), times exactly: each run holds its cell, number of fixes, first and last time.
+// A track is a header (version, code length, number of runs) followed by the runs, each made of varints:
+// - the run's number of fixes and its move from the previous cell, together: moves within 2 rows and columns (the common case
+//   of a track moving to a neighbor cell) take one of MOVES - 1 values, farther ones an escape followed by zigzag row and column deltas,
+//   so that a run of a few fixes moving to a close cell takes a single byte;
+// - the zigzag time since the end of the previous run, then the run's duration, both less their prediction from the previous
+//   run's time since the one before (the sampling interval), so that regularly sampled fixes take a byte each.
+// Columns wrap around the antimeridian. Tracks can be concatenated in a buffer, each Decoder reading one.
+public final class TrajectoryCodec {
+
+    private static final int VERSION = 1;
+    // Moves within WINDOW rows and columns (staying in the same cell aside), then the escape.
+    private static final int WINDOW = 2;
+    private static final int MOVES = (2 * WINDOW + 1) * (2 * WINDOW + 1);
+    private static final int JUMP = MOVES - 1;
+    // Longest varint for a long, and longest run.
+    private static final int VARINT_MAX_LENGTH = 10;
+    private static final int RUN_MAX_LENGTH = 5 * VARINT_MAX_LENGTH;
+
+    private TrajectoryCodec() {
+        // Empty
+    }
+
+    // Encodes fixes [from, to) in one go.
+    public static ByteBuffer encode(final double[] latitudes, final double[] longitudes, final long[] times, final int from, final int to, final int codeLength) throws IllegalArgumentException {
+        if (from < 0 || from > to || to > latitudes.length || to > longitudes.length || to > times.length) {
+            throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+        }
+        final Encoder encoder = new Encoder(codeLength);
+        for (int i = from; i < to; i++) {
+            encoder.add(latitudes[i], longitudes[i], times[i]);
+        }
+        return encoder.finish();
+    }
+
+    // Varints
+
+    private static void putVarint(final ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarint(final ByteBuffer buffer) throws IllegalArgumentException {
+        long value = 0;
+        for (int shift = 0; shift < 7 * VARINT_MAX_LENGTH; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint in trajectory");
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length += 1;
+        }
+        return length;
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long columns(final int codeLength) {
+        return OpenLocationCode.LONGITUDE_MAX * 2 * OpenLocationCode.LONGITUDE_PRECISION / OpenLocationCode.longitudePlaceValue(codeLength);
+    }
+
+    // Column delta wrapped around the antimeridian to within half the columns.
+    private static long wrap(final long delta, final long columns) {
+        final long wrapped = ((delta % columns) + columns) % columns;
+        return (wrapped * 2 > columns) ? wrapped - columns : wrapped;
+    }
+
+    // Encoder of one track at a time, not thread-safe: add() its fixes in time order, then finish() it to start the next one.
+    public static final class Encoder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final int mCodeLength;
+        private final long mHeight;
+        private final long mWidth;
+        private final long mColumns;
+        // Runs so far, without the header.
+        private ByteBuffer mBuffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        private int mRuns;
+        // Current run, if mCount > 0.
+        private long mRow;
+        private long mColumn;
+        private int mCount;
+        private long mStart;
+        private long mEnd;
+        // Last written run, and the time between it and the one before.
+        private long mPreviousRow;
+        private long mPreviousColumn;
+        private long mPreviousEnd;
+        private long mInterval;
+
+        public Encoder(final int codeLength) throws IllegalArgumentException {
+            if (codeLength < 2 || codeLength > PlusCode.CODE_MAX_LENGTH || (codeLength < OpenLocationCode.PAIR_CODE_LENGTH && (codeLength % 2) != 0)) {
+                throw new IllegalArgumentException("Invalid Open Location Code length: " + codeLength);
+            }
+            mCodeLength = codeLength;
+            mHeight = OpenLocationCode.latitudePlaceValue(codeLength);
+            mWidth = OpenLocationCode.longitudePlaceValue(codeLength);
+            mColumns = columns(codeLength);
+        }
+
+        public int codeLength() {
+            return mCodeLength;
+        }
+
+        // Times in any unit, not decreasing within a track.
+        public void add(final double latitude, final double longitude, final long time) throws IllegalArgumentException {
+            if (Double.isNaN(latitude) || Double.isNaN(longitude) || Double.isInfinite(longitude)) {
+                throw new IllegalArgumentException("Invalid fix: " + latitude + "," + longitude);
+            }
+            if (mCount > 0 && time < mEnd) {
+                throw new IllegalArgumentException("Fix out of time order: " + time + " after " + mEnd);
+            }
+            final long row = OpenLocationCode.latitudeToInteger(latitude, mCodeLength) / mHeight;
+            final long column = OpenLocationCode.longitudeToInteger(longitude) / mWidth;
+            if (mCount > 0 && row == mRow && column == mColumn) {
+                mCount += 1;
+                mEnd = time;
+                return ;
+            }
+            if (mCount > 0) {
+                flush();
+            }
+            mRow = row;
+            mColumn = column;
+            mCount = 1;
+            mStart = time;
+            mEnd = time;
+        }
+
+        // The track (from position 0 to its limit), and resets the encoder for the next one.
+        public ByteBuffer finish() {
+            if (mCount > 0) {
+                flush();
+            }
+            mBuffer.flip();
+            final ByteBuffer track = ByteBuffer.allocate(2 + varintLength(mRuns) + mBuffer.remaining());
+            track.put((byte) VERSION).put((byte) mCodeLength);
+            putVarint(track, mRuns);
+            track.put(mBuffer);
+            track.flip();
+            mBuffer.clear();
+            mRuns = 0;
+            mCount = 0;
+            mPreviousRow = 0;
+            mPreviousColumn = 0;
+            mPreviousEnd = 0;
+            mInterval = 0;
+            return track;
+        }
+
+        private void flush() {
+            if (mBuffer.remaining() < RUN_MAX_LENGTH) {
+                final ByteBuffer buffer = ByteBuffer.allocate(mBuffer.capacity() * 2);
+                mBuffer.flip();
+                mBuffer = buffer.put(mBuffer);
+            }
+            final long rowDelta = mRow - mPreviousRow;
+            final long columnDelta = wrap(mColumn - mPreviousColumn, mColumns);
+            final boolean near = (mRuns > 0 && Math.abs(rowDelta) <= WINDOW && Math.abs(columnDelta) <= WINDOW);
+            final int move = near ? move(rowDelta, columnDelta) : JUMP;
+            putVarint(mBuffer, (mCount - 1L) * MOVES + move);
+            if (! near) {
+                putVarint(mBuffer, zigzag(rowDelta));
+                putVarint(mBuffer, zigzag(columnDelta));
+            }
+            putVarint(mBuffer, zigzag(mStart - mPreviousEnd - mInterval));
+            putVarint(mBuffer, zigzag(mEnd - mStart - (mCount - 1L) * mInterval));
+            // The first run's time is absolute.
+            mInterval = (mRuns > 0) ? mStart - mPreviousEnd : 0;
+            mRuns += 1;
+            mPreviousRow = mRow;
+            mPreviousColumn = mColumn;
+            mPreviousEnd = mEnd;
+        }
+
+        // Index of the move within the window, skipping the center.
+        private static int move(final long rowDelta, final long columnDelta) {
+            final int index = (int) ((rowDelta + WINDOW) * (2 * WINDOW + 1) + columnDelta + WINDOW);
+            return (index > MOVES / 2) ? index - 1 : index;
+        }
+
+    }
+
+    // Streaming reader of one track from a buffer's position, advancing it run by run (past the track once all runs are read).
+    public static final class Decoder {
+
+        private final ByteBuffer mBuffer;
+        private final int mCodeLength;
+        private final long mHeight;
+        private final long mWidth;
+        private final long mRows;
+        private final long mColumns;
+        private final long mRuns;
+        private long mRun;
+        // Current run.
+        private long mRow;
+        private long mColumn;
+        private int mCount;
+        private long mStart;
+        private long mEnd;
+        private long mInterval;
+
+        public Decoder(final ByteBuffer buffer) throws IllegalArgumentException {
+            mBuffer = buffer;
+            try {
+                if (buffer.get() != VERSION) {
+                    throw new IllegalArgumentException("Not a trajectory");
+                }
+                mCodeLength = buffer.get();
+                if (mCodeLength < 2 || mCodeLength > PlusCode.CODE_MAX_LENGTH || (mCodeLength < OpenLocationCode.PAIR_CODE_LENGTH && (mCodeLength % 2) != 0)) {
+                    throw new IllegalArgumentException("Invalid trajectory code length: " + mCodeLength);
+                }
+                mRuns = getVarint(buffer);
+            }
+            catch (final BufferUnderflowException e) {
+                throw new IllegalArgumentException("Truncated trajectory");
+            }
+            mHeight = OpenLocationCode.latitudePlaceValue(mCodeLength);
+            mWidth = OpenLocationCode.longitudePlaceValue(mCodeLength);
+            mRows = OpenLocationCode.LATITUDE_MAX * 2 * OpenLocationCode.LATITUDE_PRECISION / mHeight;
+            mColumns = columns(mCodeLength);
+        }
+
+        public int codeLength() {
+            return mCodeLength;
+        }
+
+        public long runs() {
+            return mRuns;
+        }
+
+        public boolean hasNext() {
+            return mRun < mRuns;
+        }
+
+        // Reads the next run and returns its cell.
+        public long next() throws IllegalArgumentException {
+            if (mRun >= mRuns) {
+                throw new IllegalStateException("No more runs");
+            }
+            try {
+                final long head = getVarint(mBuffer);
+                final int move = (int) (head % MOVES);
+                final long count = head / MOVES + 1;
+                if (move == JUMP) {
+                    mRow += unzigzag(getVarint(mBuffer));
+                    mColumn += unzigzag(getVarint(mBuffer));
+                }
+                else if (mRun == 0) {
+                    throw new IllegalArgumentException("Invalid trajectory: first run without a position");
+                }
+                else {
+                    // Back from the index within the window, skipping the center.
+                    final int index = (move >= MOVES / 2) ? move + 1 : move;
+                    mRow += index / (2 * WINDOW + 1) - WINDOW;
+                    mColumn += index % (2 * WINDOW + 1) - WINDOW;
+                }
+                mColumn = ((mColumn % mColumns) + mColumns) % mColumns;
+                if (mRow < 0 || mRow >= mRows || count > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Invalid trajectory run: " + mRun);
+                }
+                mCount = (int) count;
+                final long previousEnd = mEnd;
+                mStart = previousEnd + mInterval + unzigzag(getVarint(mBuffer));
+                mEnd = mStart + (count - 1) * mInterval + unzigzag(getVarint(mBuffer));
+                mInterval = (mRun > 0) ? mStart - previousEnd : 0;
+            }
+            catch (final BufferUnderflowException e) {
+                throw new IllegalArgumentException("Truncated trajectory");
+            }
+            mRun += 1;
+            return cell();
+        }
+
+        // Packed code of the current run's cell.
+        public long cell() {
+            return PlusCode.pack(mRow * mHeight, mColumn * mWidth, mCodeLength);
+        }
+
+        // Center of the current run's cell.
+        public double latitude() {
+            return (mRow * mHeight + mHeight / 2.0) / OpenLocationCode.LATITUDE_PRECISION - OpenLocationCode.LATITUDE_MAX;
+        }
+
+        public double longitude() {
+            return (mColumn * mWidth + mWidth / 2.0) / OpenLocationCode.LONGITUDE_PRECISION - OpenLocationCode.LONGITUDE_MAX;
+        }
+
+        // Number of fixes in the current run.
+        public int count() {
+            return mCount;
+        }
+
+        // Times of the first and last fixes of the current run.
+        public long startTime() {
+            return mStart;
+        }
+
+        public long endTime() {
+            return mEnd;
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceEngineTest {
+
+    private static final int ZONES = 200;
+    private static final int FIXES = 20000;
+    private static final int[] LENGTHS = { 4, 6, 8, 8, 10 };
+
+    // Zones of cells around a city, overlapping each other.
+    private static List<long[]> zones(final Random random) {
+        final List<long[]> zones = new ArrayList<long[]>();
+        for (int zone = 0; zone < ZONES; zone++) {
+            final long[] cells = new long[1 + random.nextInt(20)];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = PlusCode.pack(48.85 + random.nextGaussian() * 0.05, 2.35 + random.nextGaussian() * 0.05, LENGTHS[random.nextInt(LENGTHS.length)]);
+            }
+            zones.add(cells);
+        }
+        return zones;
+    }
+
+    private static double[][] fixes(final Random random) {
+        final double[] latitudes = new double[FIXES];
+        final double[] longitudes = new double[FIXES];
+        for (int i = 0; i < FIXES; i++) {
+            latitudes[i] = 48.85 + random.nextGaussian() * 0.05;
+            longitudes[i] = 2.35 + random.nextGaussian() * 0.05;
+        }
+        return new double[][] { latitudes, longitudes };
+    }
+
+    private static GeofenceEngine engine(final List<long[]> zones) {
+        final GeofenceEngine.Builder builder = new GeofenceEngine.Builder();
+        for (int zone = 0; zone < zones.size(); zone++) {
+            builder.add(zone, zones.get(zone));
+        }
+        return builder.build();
+    }
+
+    // Zones holding a cell that contains the coordinates, ascending.
+    private static int[] bruteForce(final List<long[]> zones, final double latitude, final double longitude) {
+        final long packed = PlusCode.pack(latitude, longitude, PlusCode.CODE_MAX_LENGTH);
+        final TreeSet<Integer> matches = new TreeSet<Integer>();
+        for (int zone = 0; zone < zones.size(); zone++) {
+            for (final long cell : zones.get(zone)) {
+                if (PlusCode.contains(cell, packed)) {
+                    matches.add(zone);
+                }
+            }
+        }
+        final int[] out = new int[matches.size()];
+        int i = 0;
+        for (final int zone : matches) {
+            out[i++] = zone;
+        }
+        return out;
+    }
+
+    @Test
+    public void matchMatchesBruteForce() {
+        final Random random = new Random(1);
+        final List<long[]> zones = zones(random);
+        final GeofenceEngine engine = engine(zones);
+        final double[][] fixes = fixes(random);
+        final GeofenceEngine.Matches matches = engine.matchAll(fixes[0], fixes[1], 0, FIXES);
+        final int[] out = new int[ZONES];
+        final int[] small = new int[2];
+        int matched = 0;
+        for (int i = 0; i < FIXES; i++) {
+            final int[] expected = bruteForce(zones, fixes[0][i], fixes[1][i]);
+            matched += (expected.length > 0) ? 1 : 0;
+            final int count = engine.match(fixes[0][i], fixes[1][i], out);
+            assertEquals(expected.length, count);
+            for (int j = 0; j < count; j++) {
+                assertEquals(expected[j], out[j]);
+            }
+            assertEquals(expected.length, matches.count(i));
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(expected[j], matches.zone(i, j));
+            }
+            assertEquals(expected.length > 0, engine.isInside(fixes[0][i], fixes[1][i]));
+            // Too small: an upper bound, having written the smallest zones.
+            final int smallCount = engine.match(fixes[0][i], fixes[1][i], small);
+            if (expected.length <= small.length) {
+                assertEquals(expected.length, smallCount);
+            }
+            else {
+                assertTrue(smallCount > small.length);
+                assertEquals(expected[0], small[0]);
+                assertEquals(expected[1], small[1]);
+            }
+        }
+        // Enough fixes in zones for the comparison to mean something.
+        assertTrue(matched > FIXES / 10);
+    }
+
+    @Test
+    public void trackerReportsTransitions() {
+        final Random random = new Random(2);
+        final List<long[]> zones = zones(random);
+        final List<int[]> events = new ArrayList<int[]>();
+        final GeofenceEngine.Tracker tracker = new GeofenceEngine.Tracker(engine(zones), new GeofenceEngine.Listener() {
+            @Override
+            public void onEnter(final long device, final int zone) {
+                events.add(new int[] { (int) device, zone, 1 });
+            }
+
+            @Override
+            public void onExit(final long device, final int zone) {
+                events.add(new int[] { (int) device, zone, -1 });
+            }
+        });
+        final int devices = 50;
+        final List<int[]> states = new ArrayList<int[]>();
+        for (int device = 0; device < devices; device++) {
+            states.add(new int[0]);
+        }
+        final double[][] fixes = fixes(random);
+        for (int i = 0; i < FIXES; i++) {
+            final int device = random.nextInt(devices);
+            events.clear();
+            tracker.update(device, fixes[0][i], fixes[1][i]);
+            final int[] previous = states.get(device);
+            final int[] current = bruteForce(zones, fixes[0][i], fixes[1][i]);
+            final TreeSet<Integer> entered = new TreeSet<Integer>();
+            final TreeSet<Integer> exited = new TreeSet<Integer>();
+            for (final int[] event : events) {
+                assertEquals(device, event[0]);
+                assertTrue(((event[2] > 0) ? entered : exited).add(event[1]));
+            }
+            for (final int zone : current) {
+                assertEquals(! contains(previous, zone), entered.contains(zone));
+            }
+            for (final int zone : previous) {
+                assertEquals(! contains(current, zone), exited.contains(zone));
+            }
+            assertEquals(entered.size() + exited.size(), events.size());
+            assertArrayEquals(current, tracker.zones(device));
+            states.set(device, current);
+        }
+        assertEquals(devices, tracker.size());
+    }
+
+    private static boolean contains(final int[] zones, final int zone) {
+        for (final int z : zones) {
+            if (z == zone) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
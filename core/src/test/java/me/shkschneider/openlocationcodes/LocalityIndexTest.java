@@ -0,0 +1,107 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocalityIndexTest {
+
+    @Test
+    public void resolvesShortenedCodesOfEveryLength() {
+        assertEquals("+6X", OpenLocationCode.shorten("8FVC9G8F+6X", 47.365590, 8.524997));
+        final LocalityIndex index = new LocalityIndex(new double[] { 47.365590 }, new double[] { 8.524997 });
+        assertEquals("8FVC9G8F+6X", index.resolve("+6X"));
+        final Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            // Close enough to the locality for shorten() to remove 8 digits, so that every length can be removed.
+            final String code = OpenLocationCode.encode(47.365590 + (random.nextDouble() - 0.5) * 0.001, 8.524997 + (random.nextDouble() - 0.5) * 0.001);
+            assertEquals(code.substring(8), OpenLocationCode.shorten(code, 47.365590, 8.524997));
+            for (int removed = 2; removed <= OpenLocationCode.SEPARATOR_POSITION; removed += 2) {
+                final String shortCode = code.substring(removed);
+                assertEquals(shortCode, code, index.resolve(shortCode));
+                final String[] out = new String[1];
+                index.resolveAll(new CharSequence[] { shortCode }, 0, 1, out, null, 0);
+                assertEquals(shortCode, code, out[0]);
+            }
+        }
+    }
+
+    @Test
+    public void resolvesShortenedCodesWithHints() {
+        final Random random = new Random(2);
+        final LocalityIndex index = localities(random, 2000);
+        final int count = 5000;
+        final String[] codes = new String[count];
+        final CharSequence[] shortCodes = new CharSequence[count];
+        final double[] hintLatitudes = new double[count];
+        final double[] hintLongitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            final double latitude = random.nextDouble() * 120 - 60;
+            final double longitude = random.nextDouble() * 360 - 180;
+            final int hint = index.nearest(latitude, longitude);
+            codes[i] = OpenLocationCode.encode(latitude, longitude);
+            hintLatitudes[i] = index.latitude(hint);
+            hintLongitudes[i] = index.longitude(hint);
+            try {
+                shortCodes[i] = OpenLocationCode.shorten(codes[i], hintLatitudes[i], hintLongitudes[i]);
+            }
+            catch (final IllegalArgumentException e) {
+                // Too far from any locality to shorten.
+                shortCodes[i] = codes[i];
+            }
+        }
+        final String[] out = new String[count + 1];
+        final int[] references = new int[count + 1];
+        index.resolveAll(shortCodes, hintLatitudes, hintLongitudes, 0, count, out, references, 1);
+        for (int i = 0; i < count; i++) {
+            assertEquals(shortCodes[i].toString(), codes[i], out[i + 1]);
+            assertEquals(index.reference(shortCodes[i], hintLatitudes[i], hintLongitudes[i]), references[i + 1]);
+        }
+    }
+
+    // The locality found on the torus is as close to a repetition of the code as the closest one found by recovering against each.
+    @Test
+    public void referenceMatchesBruteForce() {
+        final Random random = new Random(3);
+        final LocalityIndex index = localities(random, 300);
+        for (int i = 0; i < 2000; i++) {
+            final String code = OpenLocationCode.encode(random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180);
+            final String shortCode = code.substring(2 * (1 + random.nextInt(OpenLocationCode.SEPARATOR_POSITION / 2)));
+            double best = Double.MAX_VALUE;
+            for (int locality = 0; locality < index.size(); locality++) {
+                best = Math.min(best, distance(index, locality, shortCode));
+            }
+            final double distance = distance(index, index.reference(shortCode), shortCode);
+            assertTrue(shortCode + ": " + distance + " > " + best, distance <= best * (1 + 1e-6) + 1e-15);
+        }
+    }
+
+    private static LocalityIndex localities(final Random random, final int count) {
+        final double[] latitudes = new double[count];
+        final double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = random.nextDouble() * 120 - 60;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        return new LocalityIndex(latitudes, longitudes);
+    }
+
+    // Squared distance in degrees, longitudes scaled by the cosine of the locality, to the code recovered against it.
+    private static double distance(final LocalityIndex index, final int locality, final String shortCode) {
+        final OpenLocationCode.CodeArea codeArea = OpenLocationCode.decode(OpenLocationCode.recover(shortCode, index.latitude(locality), index.longitude(locality)));
+        final double latitude = codeArea.latitudeCenter - index.latitude(locality);
+        double longitude = codeArea.longitudeCenter - index.longitude(locality);
+        if (longitude >= 180) {
+            longitude -= 360;
+        }
+        else if (longitude < -180) {
+            longitude += 360;
+        }
+        longitude *= Math.cos(Math.toRadians(index.latitude(locality)));
+        return latitude * latitude + longitude * longitude;
+    }
+
+}
@@ -0,0 +1,91 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelBatchTest {
+
+    private static final int POINTS = 10000;
+
+    // A threshold of 1, so that every batch is split.
+    private final ParallelBatch mParallelBatch = new ParallelBatch(new ForkJoinPool(4), 1);
+    private final double[] mLatitudes = new double[POINTS];
+    private final double[] mLongitudes = new double[POINTS];
+
+    public ParallelBatchTest() {
+        final Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            mLatitudes[i] = random.nextDouble() * 180 - 90;
+            mLongitudes[i] = random.nextDouble() * 360 - 180;
+        }
+    }
+
+    @Test
+    public void matchesSequential() {
+        final long[] expected = new long[POINTS - 10];
+        final long[] codes = new long[POINTS - 10];
+        OpenLocationCode.encodeBatch(mLatitudes, mLongitudes, 10, POINTS, 10, expected);
+        mParallelBatch.encode(mLatitudes, mLongitudes, 10, POINTS, 10, codes);
+        assertArrayEquals(expected, codes);
+        final int length = OpenLocationCode.encodedLength(11);
+        final char[] expectedChars = new char[POINTS * length];
+        final char[] chars = new char[POINTS * length];
+        OpenLocationCode.encodeBatch(mLatitudes, mLongitudes, 0, POINTS, 11, expectedChars);
+        mParallelBatch.encode(mLatitudes, mLongitudes, 0, POINTS, 11, chars);
+        assertArrayEquals(expectedChars, chars);
+        final double[] expectedLatitudes = new double[codes.length];
+        final double[] expectedLongitudes = new double[codes.length];
+        final double[] latitudes = new double[codes.length];
+        final double[] longitudes = new double[codes.length];
+        OpenLocationCode.decodeBatch(codes, 0, codes.length, expectedLatitudes, expectedLongitudes, 0);
+        mParallelBatch.decode(codes, 0, codes.length, latitudes, longitudes);
+        assertArrayEquals(expectedLatitudes, latitudes, 0);
+        assertArrayEquals(expectedLongitudes, longitudes, 0);
+    }
+
+    // Bad ranges and outputs fail before any chunk writes to the output.
+    @Test
+    public void failsFastOnWholeRange() {
+        final long[] codes = new long[POINTS - 1];
+        try {
+            mParallelBatch.encode(mLatitudes, mLongitudes, 0, POINTS, 10, codes);
+            fail("Output too small");
+        }
+        catch (final IllegalArgumentException e) {
+            assertArrayEquals(new long[POINTS - 1], codes);
+        }
+        try {
+            mParallelBatch.encode(mLatitudes, Arrays.copyOf(mLongitudes, POINTS / 2), 0, POINTS, 10, new long[POINTS]);
+            fail("Range past the longitudes");
+        }
+        catch (final IllegalArgumentException e) {
+            // Expected
+        }
+        final char[] chars = new char[POINTS * OpenLocationCode.encodedLength(10) - 1];
+        try {
+            mParallelBatch.encode(mLatitudes, mLongitudes, 0, POINTS, 10, chars);
+            fail("Output too small");
+        }
+        catch (final IllegalArgumentException e) {
+            assertArrayEquals(new char[chars.length], chars);
+        }
+        final double[] latitudes = new double[POINTS];
+        final double[] longitudes = new double[POINTS - 1];
+        final long[] encoded = new long[POINTS];
+        OpenLocationCode.encodeBatch(mLatitudes, mLongitudes, 0, POINTS, 10, encoded);
+        try {
+            mParallelBatch.decode(encoded, 0, POINTS, latitudes, longitudes);
+            fail("Output too small");
+        }
+        catch (final IllegalArgumentException e) {
+            assertArrayEquals(new double[POINTS], latitudes, 0);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlusCodeTest {
+
+    // Packs digit values (-1 for missing ones) by hand, following the layout documented in PlusCode.
+    private static long pack(final int[] values, final int codeLength, final boolean isShort) {
+        long packed = codeLength | (isShort ? 1L << 59 : 0);
+        for (int digit = 0; digit < values.length; digit++) {
+            packed |= (values[digit] + 1L) << (4 + 5 * (PlusCode.CODE_MAX_LENGTH - 1 - digit));
+        }
+        return packed;
+    }
+
+    private static long pack(final String digits) {
+        final int[] values = new int[digits.length()];
+        for (int digit = 0; digit < values.length; digit++) {
+            values[digit] = OpenLocationCode.digitValue(digits.charAt(digit));
+        }
+        return pack(values, values.length, false);
+    }
+
+    @Test
+    public void rejectsFirstPairOutOfRange() {
+        assertTrue(PlusCode.isValid(pack("9V222222")));
+        assertTrue(PlusCode.isValid(pack("CV")));
+        // Latitude 90 degrees and over.
+        assertFalse(PlusCode.isValid(pack("F2222222")));
+        assertFalse(PlusCode.isValid(pack("X2")));
+        // Longitude 180 degrees and over.
+        assertFalse(PlusCode.isValid(pack("9W222222")));
+        assertFalse(PlusCode.isValid(pack("2X9V")));
+    }
+
+    // Valid packed values are the ones whose code classifies as valid.
+    @Test
+    public void isValidMatchesClassify() {
+        final Random random = new Random(1);
+        final int[] lengths = { 2, 4, 6, 8, 9, 10, 11 };
+        for (int i = 0; i < 100000; i++) {
+            final int codeLength = lengths[random.nextInt(lengths.length)];
+            final boolean isShort = codeLength >= OpenLocationCode.SEPARATOR_POSITION && random.nextBoolean();
+            final int first = isShort ? 2 * (1 + random.nextInt(OpenLocationCode.SEPARATOR_POSITION / 2)) : 0;
+            final int[] values = new int[codeLength];
+            for (int digit = 0; digit < codeLength; digit++) {
+                values[digit] = (digit < first) ? -1 : random.nextInt(OpenLocationCode.ENCODING_BASE);
+            }
+            final long packed = pack(values, codeLength, isShort);
+            final String code = PlusCode.unpack(packed);
+            assertEquals(code, OpenLocationCode.classify(code).isValid(), PlusCode.isValid(packed));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PointIndexTest {
+
+    private static final int POINTS = 20000;
+
+    // Uniform over the world, plus a dense city, so that queries run at every level.
+    private static double[][] points(final Random random) {
+        final double[] latitudes = new double[POINTS];
+        final double[] longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            if ((i % 2) == 0) {
+                latitudes[i] = random.nextDouble() * 180 - 90;
+                longitudes[i] = random.nextDouble() * 360 - 180;
+            }
+            else {
+                latitudes[i] = 48.85 + random.nextGaussian() * 0.05;
+                longitudes[i] = 2.35 + random.nextGaussian() * 0.05;
+            }
+        }
+        return new double[][] { latitudes, longitudes };
+    }
+
+    @Test
+    public void queryMatchesBruteForce() {
+        final Random random = new Random(1);
+        final double[][] points = points(random);
+        final double[] latitudes = points[0];
+        final double[] longitudes = points[1];
+        final PointIndex pointIndex = new PointIndex(latitudes, longitudes);
+        for (int query = 0; query < 500; query++) {
+            final double size = Math.pow(10, -3 + random.nextDouble() * 5);
+            final boolean city = random.nextBoolean();
+            final double latitudeLo = city ? 48.85 + random.nextGaussian() * 0.05 : random.nextDouble() * 180 - 90;
+            final double longitudeLo = city ? 2.35 + random.nextGaussian() * 0.05 : random.nextDouble() * 360 - 180;
+            final double latitudeHi = Math.min(90, latitudeLo + size * random.nextDouble());
+            double longitudeHi = longitudeLo + size * random.nextDouble();
+            // Some boxes cross the antimeridian.
+            if (longitudeHi >= 180) {
+                longitudeHi -= 360;
+            }
+            final List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < POINTS; i++) {
+                final boolean longitudeInside = (longitudeLo <= longitudeHi)
+                        ? (longitudes[i] >= longitudeLo && longitudes[i] <= longitudeHi)
+                        : (longitudes[i] >= longitudeLo || longitudes[i] <= longitudeHi);
+                if (latitudes[i] >= latitudeLo && latitudes[i] <= latitudeHi && longitudeInside) {
+                    expected.add(i);
+                }
+            }
+            final List<Integer> actual = new ArrayList<Integer>();
+            final int count = pointIndex.query(latitudeLo, longitudeLo, latitudeHi, longitudeHi, new PointIndex.Visitor() {
+                @Override
+                public void onPoint(final int index, final double latitude, final double longitude) {
+                    actual.add(index);
+                }
+            });
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), count);
+        }
+    }
+
+    // Compares distances rather than indexes, so that ties may come in any order.
+    @Test
+    public void nearestMatchesBruteForce() {
+        final Random random = new Random(2);
+        final double[][] points = points(random);
+        final double[] latitudes = points[0];
+        final double[] longitudes = points[1];
+        final PointIndex pointIndex = new PointIndex(latitudes, longitudes);
+        final int[] ks = { 1, 2, 10, 100 };
+        for (int query = 0; query < 500; query++) {
+            final boolean city = random.nextBoolean();
+            final double latitude = city ? 48.85 + random.nextGaussian() * 0.1 : random.nextDouble() * 180 - 90;
+            final double longitude = city ? 2.35 + random.nextGaussian() * 0.1 : random.nextDouble() * 360 - 180;
+            final double[] distances = new double[POINTS];
+            for (int i = 0; i < POINTS; i++) {
+                distances[i] = OpenLocationCode.distance(latitude, longitude, latitudes[i], longitudes[i]);
+            }
+            Arrays.sort(distances);
+            final int k = ks[query % ks.length];
+            final double[] actual = new double[k];
+            final int[] found = new int[1];
+            final int count = pointIndex.nearest(latitude, longitude, k, new PointIndex.Visitor() {
+                @Override
+                public void onPoint(final int index, final double pointLatitude, final double pointLongitude) {
+                    assertEquals(latitudes[index], pointLatitude, 0);
+                    actual[found[0]++] = OpenLocationCode.distance(latitude, longitude, pointLatitude, pointLongitude);
+                }
+            });
+            assertEquals(k, count);
+            assertArrayEquals(Arrays.copyOf(distances, k), actual, 0);
+        }
+    }
+
+}
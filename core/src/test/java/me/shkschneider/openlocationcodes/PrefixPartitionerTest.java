@@ -0,0 +1,119 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrefixPartitionerTest {
+
+    private static final int POINTS = 200000;
+
+    // A dense city and its suburbs, plus uniform points.
+    private static double[][] points(final Random random) {
+        final double[] latitudes = new double[POINTS];
+        final double[] longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            if ((i % 4) == 0) {
+                latitudes[i] = random.nextDouble() * 180 - 90;
+                longitudes[i] = random.nextDouble() * 360 - 180;
+            }
+            else {
+                final double spread = ((i % 4) == 1) ? 1 : 0.01;
+                latitudes[i] = 40.7 + random.nextGaussian() * spread;
+                longitudes[i] = -74 + random.nextGaussian() * spread;
+            }
+        }
+        return new double[][] { latitudes, longitudes };
+    }
+
+    @Test
+    public void shardsAreBalanced() {
+        final Random random = new Random(1);
+        final double[][] points = points(random);
+        final PrefixPartitioner.Builder builder = new PrefixPartitioner.Builder();
+        for (int i = 0; i < POINTS; i++) {
+            builder.add(points[0][i], points[1][i]);
+        }
+        for (final int shards : new int[] { 1, 2, 7, 64, 500 }) {
+            final PrefixPartitioner partitioner = builder.build(shards);
+            assertEquals(shards, partitioner.shards());
+            // Weights are what lands in each shard.
+            final int[] out = new int[POINTS];
+            partitioner.shardOf(points[0], points[1], 0, POINTS, out, 0);
+            final long[] counts = new long[shards];
+            for (int i = 0; i < POINTS; i++) {
+                assertEquals(out[i], partitioner.shardOf(points[0][i], points[1][i]));
+                counts[out[i]] += 1;
+            }
+            final double mean = (double) POINTS / shards;
+            for (int shard = 0; shard < shards; shard++) {
+                assertEquals(counts[shard], partitioner.weight(shard));
+                assertTrue(shards + " shards: " + counts[shard], Math.abs(counts[shard] - mean) <= mean * 0.2);
+            }
+            // Boundaries ascend, each starting its shard.
+            final long[] boundaries = partitioner.boundaries();
+            for (int i = 0; i < boundaries.length; i++) {
+                assertTrue(i == 0 || boundaries[i - 1] < boundaries[i]);
+                assertEquals(i + 1, partitioner.shardOf(boundaries[i]));
+            }
+        }
+    }
+
+    // A full-length cell heavier than a shard cannot be split: fewer or uneven shards, but nothing lost.
+    @Test
+    public void heavyCellKeepsWeights() {
+        final Random random = new Random(2);
+        final PrefixPartitioner.Builder builder = new PrefixPartitioner.Builder();
+        long total = 0;
+        for (int i = 0; i < 10000; i++) {
+            builder.add(PlusCode.pack(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, 8));
+            total += 1;
+        }
+        builder.add(PlusCode.pack(40.7, -74, PlusCode.CODE_MAX_LENGTH), 100000);
+        total += 100000;
+        final PrefixPartitioner partitioner = builder.build(10);
+        assertTrue(partitioner.shards() <= 10);
+        long sum = 0;
+        for (int shard = 0; shard < partitioner.shards(); shard++) {
+            sum += partitioner.weight(shard);
+        }
+        assertEquals(total, sum);
+    }
+
+    @Test
+    public void serializationRoundTrips() {
+        final Random random = new Random(3);
+        final double[][] points = points(random);
+        final PrefixPartitioner.Builder builder = new PrefixPartitioner.Builder();
+        for (int i = 0; i < POINTS; i++) {
+            builder.add(points[0][i], points[1][i]);
+        }
+        for (final int shards : new int[] { 1, 37 }) {
+            final PrefixPartitioner partitioner = builder.build(shards);
+            final byte[] bytes = partitioner.toByteArray();
+            final PrefixPartitioner loaded = PrefixPartitioner.fromByteArray(bytes);
+            assertEquals(partitioner, loaded);
+            assertEquals(partitioner.hashCode(), loaded.hashCode());
+            assertArrayEquals(bytes, loaded.toByteArray());
+            for (int i = 0; i < POINTS; i += 100) {
+                assertEquals(partitioner.shardOf(points[0][i], points[1][i]), loaded.shardOf(points[0][i], points[1][i]));
+            }
+            for (final int length : new int[] { 0, 11, bytes.length - 1 }) {
+                try {
+                    PrefixPartitioner.fromByteArray(Arrays.copyOf(bytes, length));
+                    fail("Truncated to " + length);
+                }
+                catch (final IllegalArgumentException e) {
+                    // Expected
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class RegionCovererTest {
+
+    private static final int POINTS = 2000;
+
+    @Test
+    public void boxCoveringHasNoGaps() {
+        final Random random = new Random(1);
+        final RegionCoverer[] coverers = { new RegionCoverer(4, 10, 50), new RegionCoverer(4, 8, 200), new RegionCoverer(6, 10, 8) };
+        for (int box = 0; box < 100; box++) {
+            final double size = Math.pow(10, -3 + random.nextDouble() * 4);
+            final double latitudeLo = random.nextDouble() * 160 - 80;
+            final double longitudeLo = random.nextDouble() * 360 - 180;
+            final double latitudeHi = latitudeLo + size * random.nextDouble();
+            double longitudeHi = longitudeLo + size * random.nextDouble();
+            // Some boxes cross the antimeridian.
+            if (longitudeHi >= 180) {
+                longitudeHi -= 360;
+            }
+            for (final RegionCoverer coverer : coverers) {
+                final long[] cells = coverer.coverPacked(latitudeLo, longitudeLo, latitudeHi, longitudeHi);
+                checkSorted(cells);
+                final double width = (longitudeHi >= longitudeLo) ? longitudeHi - longitudeLo : longitudeHi + 360 - longitudeLo;
+                for (int i = 0; i < POINTS; i++) {
+                    final double latitude = latitudeLo + (latitudeHi - latitudeLo) * random.nextDouble();
+                    double longitude = longitudeLo + width * random.nextDouble();
+                    if (longitude >= 180) {
+                        longitude -= 360;
+                    }
+                    checkCovered(cells, latitude, longitude);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void polygonCoveringHasNoGaps() {
+        final Random random = new Random(2);
+        final RegionCoverer coverer = new RegionCoverer(4, 10, 100);
+        for (int polygon = 0; polygon < 100; polygon++) {
+            // Star-shaped around a center, so that it is simple.
+            final int vertices = 3 + random.nextInt(10);
+            final double radius = Math.pow(10, -2 + random.nextDouble() * 3);
+            final double latitude = random.nextDouble() * 140 - 70;
+            final double longitude = random.nextDouble() * 340 - 170;
+            final double[] latitudes = new double[vertices];
+            final double[] longitudes = new double[vertices];
+            for (int i = 0; i < vertices; i++) {
+                final double angle = 2 * Math.PI * i / vertices;
+                final double distance = radius * (0.2 + 0.8 * random.nextDouble());
+                latitudes[i] = latitude + distance * Math.sin(angle);
+                longitudes[i] = longitude + distance * Math.cos(angle);
+            }
+            final long[] cells = coverer.coverPacked(latitudes, longitudes);
+            checkSorted(cells);
+            for (int i = 0; i < POINTS; i++) {
+                final double pointLatitude = latitude + (random.nextDouble() * 2 - 1) * radius;
+                final double pointLongitude = longitude + (random.nextDouble() * 2 - 1) * radius;
+                if (inside(latitudes, longitudes, pointLatitude, pointLongitude)) {
+                    checkCovered(cells, pointLatitude, pointLongitude);
+                }
+            }
+        }
+    }
+
+    private static void checkSorted(final long[] cells) {
+        for (int i = 1; i < cells.length; i++) {
+            assertTrue(PlusCode.unpack(cells[i]), cells[i - 1] < cells[i]);
+        }
+    }
+
+    private static void checkCovered(final long[] cells, final double latitude, final double longitude) {
+        final long packed = PlusCode.pack(latitude, longitude, PlusCode.CODE_MAX_LENGTH);
+        for (final long cell : cells) {
+            if (PlusCode.contains(cell, packed)) {
+                return ;
+            }
+        }
+        throw new AssertionError("Not covered: " + latitude + "," + longitude);
+    }
+
+    // Even-odd rule.
+    private static boolean inside(final double[] latitudes, final double[] longitudes, final double latitude, final double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                    && longitude < longitudes[j] + (latitude - latitudes[j]) * (longitudes[i] - longitudes[j]) / (latitudes[i] - latitudes[j])) {
+                inside = ! inside;
+            }
+        }
+        return inside;
+    }
+
+}
@@ -0,0 +1,91 @@
+package me.shkschneider.openlocationcodes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// Shortening and recovery vectors published with the reference implementation
+// (test_data/shortCodeTests.csv of https://github.com/google/open-location-code).
+public class ShortenRecoverTest {
+
+    // Full code, reference latitude, reference longitude, short code, and whether the row checks
+    // both directions ("B") or recovery only ("R").
+    private static final String[][] VECTORS = {
+            { "9C3W9QCJ+2VX", "51.3701125", "-1.217765625", "+2VX", "B" },
+            // Adjust so we can't trim by 8 (+/- .000755)
+            { "9C3W9QCJ+2VX", "51.3708675", "-1.217765625", "CJ+2VX", "B" },
+            { "9C3W9QCJ+2VX", "51.3693575", "-1.217765625", "CJ+2VX", "B" },
+            { "9C3W9QCJ+2VX", "51.3701125", "-1.218520625", "CJ+2VX", "B" },
+            { "9C3W9QCJ+2VX", "51.3701125", "-1.217010625", "CJ+2VX", "B" },
+            // Adjust so we can't trim by 6 (+/- .0151)
+            { "9C3W9QCJ+2VX", "51.3852125", "-1.217765625", "9QCJ+2VX", "B" },
+            { "9C3W9QCJ+2VX", "51.3550125", "-1.217765625", "9QCJ+2VX", "B" },
+            { "9C3W9QCJ+2VX", "51.3701125", "-1.232865625", "9QCJ+2VX", "B" },
+            { "9C3W9QCJ+2VX", "51.3701125", "-1.202665625", "9QCJ+2VX", "B" },
+            // Added to detect error in recoverNearest functionality
+            { "8FJFW222+", "42.899", "9.012", "22+", "B" },
+            { "796RXG22+", "14.95125", "-23.5001", "22+", "B" },
+            // Reference location is in the 4 digit cell to the south.
+            { "8FVC2GGG+GG", "46.976", "8.526", "2GGG+GG", "B" },
+            // Reference location is in the 4 digit cell to the north.
+            { "8FRCXGGG+GG", "47.003", "8.526", "XGGG+GG", "B" },
+            // Reference location is in the 4 digit cell to the east.
+            { "8FR9GXGG+GG", "46.526", "8.026", "GXGG+GG", "B" },
+            // Reference location is in the 4 digit cell to the west.
+            { "8FRCG2GG+GG", "46.526", "7.976", "G2GG+GG", "B" },
+            // Added to detect errors recovering codes near the poles.
+            { "2CXXXXXX+XX", "-81.0", "0.0", "XXXXXX+XX", "R" },
+            // Recovered full codes should be the full code
+            { "8FRCG2GG+GG", "46.526", "7.976", "8FRCG2GG+GG", "R" },
+            // Recovered full codes should be the full code in uppercase
+            { "8FRCG2GG+GG", "46.526", "7.976", "8frCG2GG+gG", "R" }
+    };
+
+    @Test
+    public void shorten() {
+        for (final String[] vector : VECTORS) {
+            if (vector[4].equals("B")) {
+                assertEquals(vector[0], vector[3], OpenLocationCode.shorten(vector[0], Double.parseDouble(vector[1]), Double.parseDouble(vector[2])));
+            }
+        }
+    }
+
+    @Test
+    public void recover() {
+        for (final String[] vector : VECTORS) {
+            assertEquals(vector[3], vector[0], OpenLocationCode.recover(vector[3], Double.parseDouble(vector[1]), Double.parseDouble(vector[2])));
+        }
+    }
+
+    @Test
+    public void shortenAll() {
+        for (final String[] vector : VECTORS) {
+            if (vector[4].equals("B")) {
+                final double latitude = Double.parseDouble(vector[1]);
+                final double longitude = Double.parseDouble(vector[2]);
+                final String[] codes = new String[1];
+                OpenLocationCode.shortenAll(new CharSequence[] { vector[0] }, 0, 1, latitude, longitude, codes, 0);
+                assertArrayEquals(vector[0], new String[] { vector[3] }, codes);
+                final long[] packed = new long[1];
+                OpenLocationCode.shortenAll(new long[] { PlusCode.pack(vector[0]) }, 0, 1, latitude, longitude, packed, 0);
+                assertEquals(vector[0], vector[3], PlusCode.unpack(packed[0]));
+            }
+        }
+    }
+
+    @Test
+    public void recoverAll() {
+        for (final String[] vector : VECTORS) {
+            final double latitude = Double.parseDouble(vector[1]);
+            final double longitude = Double.parseDouble(vector[2]);
+            final String[] codes = new String[1];
+            OpenLocationCode.recoverAll(new CharSequence[] { vector[3] }, 0, 1, latitude, longitude, codes, 0);
+            assertArrayEquals(vector[3], new String[] { vector[0] }, codes);
+            final long[] packed = new long[1];
+            OpenLocationCode.recoverAll(new long[] { PlusCode.pack(vector[3]) }, 0, 1, latitude, longitude, packed, 0);
+            assertEquals(vector[3], vector[0], PlusCode.unpack(packed[0]));
+        }
+    }
+
+}
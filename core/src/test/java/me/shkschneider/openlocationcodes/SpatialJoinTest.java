@@ -0,0 +1,123 @@
+package me.shkschneider.openlocationcodes;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialJoinTest {
+
+    private static final int POINTS = 2000;
+    private static final double[] RADII = { 50, 1000, 100000, 3000000 };
+    // Pairs this close to the radius may go either way with rounding.
+    private static final double TOLERANCE = 1e-6;
+
+    // A dense city, points around the antimeridian and the poles, and the rest uniform.
+    private static double[][] points(final Random random) {
+        final double[] latitudes = new double[POINTS];
+        final double[] longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            switch (i % 4) {
+                case 0:
+                    latitudes[i] = 48.85 + random.nextGaussian() * 0.01;
+                    longitudes[i] = 2.35 + random.nextGaussian() * 0.01;
+                    break ;
+                case 1:
+                    latitudes[i] = random.nextDouble() * 20 - 10;
+                    longitudes[i] = random.nextBoolean() ? 180 - random.nextDouble() * 0.5 : -180 + random.nextDouble() * 0.5;
+                    break ;
+                case 2:
+                    latitudes[i] = (random.nextBoolean() ? 1 : -1) * (90 - random.nextDouble() * 2);
+                    longitudes[i] = random.nextDouble() * 360 - 180;
+                    break ;
+                default:
+                    latitudes[i] = random.nextDouble() * 180 - 90;
+                    longitudes[i] = random.nextDouble() * 360 - 180;
+                    break ;
+            }
+        }
+        return new double[][] { latitudes, longitudes };
+    }
+
+    @Test
+    public void joinMatchesBruteForce() {
+        final Random random = new Random(1);
+        final double[][] points1 = points(random);
+        final double[][] points2 = points(random);
+        final ParallelBatch parallelBatch = new ParallelBatch(new ForkJoinPool(4), 64);
+        for (final double radius : RADII) {
+            final SpatialJoin join = new SpatialJoin(radius);
+            final TreeMap<Long, Double> expected = new TreeMap<Long, Double>();
+            final TreeMap<Long, Double> borderline = new TreeMap<Long, Double>();
+            for (int i = 0; i < POINTS; i++) {
+                for (int j = 0; j < POINTS; j++) {
+                    final double distance = OpenLocationCode.distance(points1[0][i], points1[1][i], points2[0][j], points2[1][j]);
+                    if (Math.abs(distance - radius) <= radius * TOLERANCE) {
+                        borderline.put(key(i, j), distance);
+                    }
+                    else if (distance < radius) {
+                        expected.put(key(i, j), distance);
+                    }
+                }
+            }
+            check(expected, borderline, join.join(points1[0], points1[1], points2[0], points2[1]));
+            check(expected, borderline, parallelBatch.join(join, points1[0], points1[1], points2[0], points2[1]));
+        }
+    }
+
+    @Test
+    public void selfJoinMatchesBruteForce() {
+        final Random random = new Random(2);
+        final double[][] points = points(random);
+        final ParallelBatch parallelBatch = new ParallelBatch(new ForkJoinPool(4), 64);
+        for (final double radius : RADII) {
+            final SpatialJoin join = new SpatialJoin(radius);
+            final TreeMap<Long, Double> expected = new TreeMap<Long, Double>();
+            final TreeMap<Long, Double> borderline = new TreeMap<Long, Double>();
+            for (int i = 0; i < POINTS; i++) {
+                for (int j = i + 1; j < POINTS; j++) {
+                    final double distance = OpenLocationCode.distance(points[0][i], points[1][i], points[0][j], points[1][j]);
+                    if (Math.abs(distance - radius) <= radius * TOLERANCE) {
+                        borderline.put(key(i, j), distance);
+                    }
+                    else if (distance < radius) {
+                        expected.put(key(i, j), distance);
+                    }
+                }
+            }
+            check(expected, borderline, join.join(points[0], points[1]));
+            check(expected, borderline, parallelBatch.join(join, points[0], points[1]));
+        }
+    }
+
+    private static long key(final int left, final int right) {
+        return ((long) left << 32) | right;
+    }
+
+    private static void check(final TreeMap<Long, Double> expected, final TreeMap<Long, Double> borderline, final SpatialJoin.Pairs pairs) {
+        final Set<Long> keys = new HashSet<Long>();
+        int found = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            assertTrue(i == 0 || pairs.left(i - 1) <= pairs.left(i));
+            final long key = key(pairs.left(i), pairs.right(i));
+            assertTrue("Duplicate pair " + pairs.left(i) + "," + pairs.right(i), keys.add(key));
+            Double distance = expected.get(key);
+            if (distance != null) {
+                found += 1;
+            }
+            else {
+                distance = borderline.get(key);
+                assertTrue("Unexpected pair " + pairs.left(i) + "," + pairs.right(i), distance != null);
+            }
+            assertEquals(distance, pairs.distance(i), 1e-6 * Math.max(1, distance));
+        }
+        assertEquals(expected.size(), found);
+    }
+
+}
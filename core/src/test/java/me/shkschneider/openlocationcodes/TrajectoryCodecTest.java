@@ -0,0 +1,103 @@
+package me.shkschneider.openlocationcodes;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TrajectoryCodecTest {
+
+    private static final int[] LENGTHS = { 4, 6, 8, 10, 11 };
+
+    // Random walk mixing steps within a cell, to neighbor cells and jumps, across the antimeridian; times irregular, some equal.
+    private static void track(final Random random, final double[] latitudes, final double[] longitudes, final long[] times) {
+        double latitude = random.nextDouble() * 160 - 80;
+        double longitude = random.nextDouble() * 360 - 180;
+        long time = random.nextLong() >> 20;
+        for (int i = 0; i < latitudes.length; i++) {
+            final double step = Math.pow(10, -6 + random.nextDouble() * 5) * ((random.nextInt(100) == 0) ? 1000 : 1);
+            latitude = Math.max(-89, Math.min(89, latitude + random.nextGaussian() * step));
+            longitude += random.nextGaussian() * step;
+            longitude = (longitude >= 180) ? longitude - 360 : ((longitude < -180) ? longitude + 360 : longitude);
+            time += (random.nextInt(10) == 0) ? random.nextInt(1000000) : ((random.nextInt(10) == 0) ? 0 : 1000 + random.nextInt(3));
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+            times[i] = time;
+        }
+    }
+
+    // Decodes one track from the buffer and compares it with runs of consecutive fixes in the same cell.
+    private static void check(final ByteBuffer buffer, final double[] latitudes, final double[] longitudes, final long[] times, final int codeLength) {
+        final TrajectoryCodec.Decoder decoder = new TrajectoryCodec.Decoder(buffer);
+        assertEquals(codeLength, decoder.codeLength());
+        long runs = 0;
+        int i = 0;
+        while (i < latitudes.length) {
+            final long cell = PlusCode.pack(latitudes[i], longitudes[i], codeLength);
+            int end = i + 1;
+            while (end < latitudes.length && PlusCode.pack(latitudes[end], longitudes[end], codeLength) == cell) {
+                end += 1;
+            }
+            assertEquals(PlusCode.unpack(cell), PlusCode.unpack(decoder.next()));
+            assertEquals(cell, decoder.cell());
+            final OpenLocationCode.CodeArea codeArea = PlusCode.decode(cell);
+            assertEquals(codeArea.latitudeCenter, decoder.latitude(), 1e-9);
+            assertEquals(codeArea.longitudeCenter, decoder.longitude(), 1e-9);
+            assertEquals(end - i, decoder.count());
+            assertEquals(times[i], decoder.startTime());
+            assertEquals(times[end - 1], decoder.endTime());
+            runs += 1;
+            i = end;
+        }
+        assertEquals(runs, decoder.runs());
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void roundTrips() {
+        final Random random = new Random(1);
+        for (int track = 0; track < 200; track++) {
+            final int size = random.nextInt(2000);
+            final double[] latitudes = new double[size];
+            final double[] longitudes = new double[size];
+            final long[] times = new long[size];
+            track(random, latitudes, longitudes, times);
+            for (final int codeLength : LENGTHS) {
+                final ByteBuffer buffer = TrajectoryCodec.encode(latitudes, longitudes, times, 0, size, codeLength);
+                check(buffer, latitudes, longitudes, times, codeLength);
+                assertEquals(0, buffer.remaining());
+            }
+        }
+    }
+
+    // Tracks concatenated in a buffer, from an encoder reused after finish().
+    @Test
+    public void roundTripsConcatenated() {
+        final Random random = new Random(2);
+        final TrajectoryCodec.Encoder encoder = new TrajectoryCodec.Encoder(8);
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        final double[][] latitudes = new double[10][];
+        final double[][] longitudes = new double[10][];
+        final long[][] times = new long[10][];
+        for (int track = 0; track < latitudes.length; track++) {
+            final int size = 1 + random.nextInt(1000);
+            latitudes[track] = new double[size];
+            longitudes[track] = new double[size];
+            times[track] = new long[size];
+            track(random, latitudes[track], longitudes[track], times[track]);
+            for (int i = 0; i < size; i++) {
+                encoder.add(latitudes[track][i], longitudes[track][i], times[track][i]);
+            }
+            buffer.put(encoder.finish());
+        }
+        buffer.flip();
+        for (int track = 0; track < latitudes.length; track++) {
+            check(buffer, latitudes[track], longitudes[track], times[track], 8);
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+}